@@ -19,13 +19,26 @@ package io.vertx.stack.command;
 import io.vertx.core.cli.CLIException;
 import io.vertx.core.cli.annotations.*;
 import io.vertx.core.spi.launcher.DefaultCommand;
+import io.vertx.stack.daemon.ResolveRequest;
+import io.vertx.stack.daemon.ResolverDaemon;
+import io.vertx.stack.model.LockFile;
 import io.vertx.stack.model.Stack;
 import io.vertx.stack.model.StackResolution;
 import io.vertx.stack.model.StackResolutionOptions;
+import io.vertx.stack.utils.Cache;
+import io.vertx.stack.utils.ClasspathProfiler;
 import io.vertx.stack.utils.Home;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The resolve command.
@@ -41,6 +54,8 @@ import java.util.List;
     "the 'VERTX_HOME' directory, launch it with: 'bin/vertx resolve'.")
 public class ResolveCommand extends DefaultCommand {
 
+  private static final long WATCH_QUIET_PERIOD = 100;
+
   private String directory;
   private String descriptor;
   private boolean failOnConflict;
@@ -51,6 +66,33 @@ public class ResolveCommand extends DefaultCommand {
   private boolean disableCache;
   private boolean disableCacheForSnapshots;
   private File cacheFile;
+  private Long snapshotCacheTtl;
+  private Integer cacheMaxEntries;
+  private boolean pruneCache;
+  private File lockFile;
+  private boolean lock;
+  private boolean locked;
+  private boolean offline;
+  private String releaseUpdatePolicy;
+  private String snapshotUpdatePolicy;
+  private String resolver;
+  private boolean nativeExtraction;
+  private boolean classDataSharing;
+  private boolean packageIndex;
+  private boolean serviceRegistry;
+  private boolean scanClasspath;
+  private boolean profileClasspath;
+  private Integer profileClasses;
+  private boolean storedJars;
+  private File storedJarsCache;
+  private boolean merge;
+  private boolean fetch;
+  private boolean apply;
+  private boolean watch;
+  private boolean daemon;
+  private boolean noDaemon;
+  private File daemonSocket;
+  private List<String> trainingCommand;
 
   @Option(longName = "dir")
   @Description("The directory containing the artifacts composing the stack. Defaults to the '$VERTX_HOME/lib' " +
@@ -98,6 +140,34 @@ public class ResolveCommand extends DefaultCommand {
     this.httpsProxy = p;
   }
 
+  @Option(longName = "offline", flag = true)
+  @Description("Work offline: the artifacts are only resolved from the local repository and the resolver cache. " +
+      "The resolution fails with the list of missing artifacts if some are not available locally.")
+  public void setOffline(boolean offline) {
+    this.offline = offline;
+  }
+
+  @Option(longName = "release-update-policy")
+  @Description("Set the update policy of the remote repositories for releases: 'always', 'daily', 'never' or " +
+      "'interval:X' (in minutes).")
+  public void setReleaseUpdatePolicy(String policy) {
+    this.releaseUpdatePolicy = policy;
+  }
+
+  @Option(longName = "snapshot-update-policy")
+  @Description("Set the update policy of the remote repositories for snapshots: 'always', 'daily', 'never' or " +
+      "'interval:X' (in minutes).")
+  public void setSnapshotUpdatePolicy(String policy) {
+    this.snapshotUpdatePolicy = policy;
+  }
+
+  @Option(longName = "resolver")
+  @Description("Set the resolver implementation, among the resolvers available on the classpath. Defaults to " +
+      "'aether'.")
+  public void setResolver(String resolver) {
+    this.resolver = resolver;
+  }
+
   @Option(longName = "no-cache", flag = true)
   @Description("Disable the resolver cache")
   public void setDisableCache(boolean disableCache) {
@@ -110,18 +180,185 @@ public class ResolveCommand extends DefaultCommand {
     this.disableCacheForSnapshots = disableCache;
   }
 
+  @Option(longName = "snapshot-cache-ttl")
+  @Description("Set the lifetime (in seconds) of the cached resolution of snapshot dependencies. Once expired, the " +
+      "snapshots are only resolved again if the repository metadata shows a newer build. Defaults to 24 hours.")
+  public void setSnapshotCacheTtl(Long ttl) {
+    this.snapshotCacheTtl = ttl;
+  }
+
+  @Option(longName = "cache-max-entries")
+  @Description("Set the maximum number of entries of the resolver cache, the least recently used entries are " +
+      "evicted first. Defaults to 1000, 0 disables the limit.")
+  public void setCacheMaxEntries(Integer max) {
+    this.cacheMaxEntries = max;
+  }
+
+  @Option(longName = "prune-cache", flag = true)
+  @Description("Remove the entries of the resolver cache whose artifacts no longer exist before resolving.")
+  public void setPruneCache(boolean prune) {
+    this.pruneCache = prune;
+  }
+
   @Option(longName = "cache-file")
   @Hidden
   public void setCacheLocation(File cache) {
     this.cacheFile = cache;
   }
 
+  @Option(longName = "lock-file")
+  @Description("The path to the lock file listing the resolved artifacts. Defaults to 'vertx-stack.lock' next to " +
+      "the stack descriptor. When set, the lock file is written by the resolution.")
+  public void setLockFile(File lockFile) {
+    this.lockFile = lockFile;
+  }
+
+  @Option(longName = "lock", flag = true)
+  @Description("Write the lock file listing the resolved artifacts. The file is only rewritten when it changes.")
+  public void setLock(boolean lock) {
+    this.lock = lock;
+  }
+
+  @Option(longName = "locked", flag = true)
+  @Description("Resolve exactly the artifacts listed in the lock file, without collecting the dependency graphs. " +
+      "The checksum of each artifact is verified.")
+  public void setLocked(boolean locked) {
+    this.locked = locked;
+  }
+
+  @Option(longName = "native-extraction", flag = true)
+  @Description("Extract the native libraries of the resolved artifacts into 'lib/native/<os>-<arch>', and set " +
+      "'java.library.path' in 'lib/vertx-launcher.args'. Start the JVM with 'java @lib/vertx-launcher.args ...' to " +
+      "use them.")
+  public void setNativeExtraction(boolean nativeExtraction) {
+    this.nativeExtraction = nativeExtraction;
+  }
+
+  @Option(longName = "class-data-sharing", flag = true)
+  @Description("Generate a Class Data Sharing archive (an AOT cache on JDK 25+) of the resolved jars by running a " +
+      "training start of the launcher. The archive is only regenerated when the resolved jars change.")
+  public void setClassDataSharing(boolean classDataSharing) {
+    this.classDataSharing = classDataSharing;
+  }
+
+  @Option(longName = "training-command", acceptMultipleValues = true)
+  @Description("The main class and arguments of the training runs generating the Class Data Sharing archive and " +
+      "profiling the class path. Defaults to 'io.vertx.core.Launcher version'.")
+  public void setTrainingCommand(List<String> trainingCommand) {
+    this.trainingCommand = trainingCommand;
+  }
+
+  @Option(longName = "package-index", flag = true)
+  @Description("Write an index mapping the packages to the resolved jars, used by the indexed class loader " +
+      "(io.vertx.stack.launcher.IndexedClassLoader) to find classes without probing every jar.")
+  public void setPackageIndex(boolean packageIndex) {
+    this.packageIndex = packageIndex;
+  }
+
+  @Option(longName = "service-registry", flag = true)
+  @Description("Write a registry merging the 'META-INF/services' files of the resolved jars, and report the " +
+      "providers declared by several jars. The indexed class loader serves the service lookups from this registry.")
+  public void setServiceRegistry(boolean serviceRegistry) {
+    this.serviceRegistry = serviceRegistry;
+  }
+
+  @Option(longName = "scan-classpath", flag = true)
+  @Description("Scan the resolved jars for duplicate classes and split packages. Duplicate classes fail the " +
+      "resolution when '--fail-on-conflict' is set.")
+  public void setScanClasspath(boolean scanClasspath) {
+    this.scanClasspath = scanClasspath;
+  }
+
+  @Option(longName = "profile-classpath", flag = true)
+  @Description("Order the class path written in 'vertx-launcher.args' by the number of classes each jar serves " +
+      "among the first classes loaded by a training run.")
+  public void setProfileClasspath(boolean profileClasspath) {
+    this.profileClasspath = profileClasspath;
+  }
+
+  @Option(longName = "profile-classes")
+  @Description("The number of classes loaded first by the training run used to order the class path. Defaults " +
+      "to 2000.")
+  public void setProfileClasses(Integer profileClasses) {
+    this.profileClasses = profileClasses;
+  }
+
+  @Option(longName = "stored-jars", flag = true)
+  @Description("Repack the resolved jars without compression when copying them, so classes are loaded without " +
+      "inflating them. Each jar version is repacked once.")
+  public void setStoredJars(boolean storedJars) {
+    this.storedJars = storedJars;
+  }
+
+  @Option(longName = "stored-jars-cache")
+  @Hidden
+  public void setStoredJarsCache(File storedJarsCache) {
+    this.storedJarsCache = storedJarsCache;
+  }
+
+  @Option(longName = "merge", flag = true)
+  @Description("Merge the resolved jars into a single archive (vertx-stack-merged.jar) instead of copying them, " +
+      "so the JVM opens a single jar. The archive is updated incrementally.")
+  public void setMerge(boolean merge) {
+    this.merge = merge;
+  }
+
+  @Option(longName = "fetch", flag = true)
+  @Description("Resolve the stack and download the artifacts into the local repository, and stage a resolution plan " +
+      "in the lib directory, without modifying it. The plan is applied later with --apply.")
+  public void setFetch(boolean fetch) {
+    this.fetch = fetch;
+  }
+
+  @Option(longName = "apply", flag = true)
+  @Description("Update the lib directory from the resolution plan staged by --fetch. The artifacts are taken from " +
+      "the local repository, nothing is resolved nor downloaded.")
+  public void setApply(boolean apply) {
+    this.apply = apply;
+  }
+
+  @Option(longName = "watch", flag = true)
+  @Description("Keep running and resolve the stack again each time the stack descriptor is modified. Only the " +
+      "modified dependencies are resolved again.")
+  public void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+
+  @Option(longName = "daemon", flag = true)
+  @Description("Start a resolver daemon, keeping the resolver and the cache warm. The next 'resolve' commands are " +
+      "forwarded to the daemon through a Unix domain socket (Java 16+).")
+  public void setDaemon(boolean daemon) {
+    this.daemon = daemon;
+  }
+
+  @Option(longName = "no-daemon", flag = true)
+  @Description("Resolve in-process, even if a resolver daemon is running.")
+  public void setNoDaemon(boolean noDaemon) {
+    this.noDaemon = noDaemon;
+  }
+
+  @Option(longName = "daemon-socket")
+  @Hidden
+  public void setDaemonSocket(File daemonSocket) {
+    this.daemonSocket = daemonSocket;
+  }
+
   /**
    * Executes the command.
    * @throws CLIException if something bad happened during the execution.
    */
   @Override
   public void run() throws CLIException {
+    File socket = daemonSocket != null ? daemonSocket : ResolverDaemon.defaultSocket();
+    if (daemon) {
+      runDaemon(socket);
+      return;
+    }
+
+    if (fetch && apply || (fetch || apply) && watch) {
+      throw new CLIException("The --fetch, --apply and --watch options cannot be combined");
+    }
+
     File descriptorFile = new File(descriptor);
     if (! descriptorFile.isFile()) {
       // Try with vert.x home
@@ -156,7 +393,29 @@ public class ResolveCommand extends DefaultCommand {
         .setFailOnConflicts(failOnConflict)
         .setCacheDisabled(disableCache)
         .setCacheDisabledForSnapshots(disableCacheForSnapshots)
-        .setCacheFile(cacheFile);
+        .setCacheFile(cacheFile)
+        .setCacheSnapshotTtl(snapshotCacheTtl != null ? TimeUnit.SECONDS.toMillis(snapshotCacheTtl)
+            : Cache.DEFAULT_SNAPSHOT_TTL)
+        .setCacheMaxEntries(cacheMaxEntries != null ? cacheMaxEntries : Cache.DEFAULT_MAX_ENTRIES)
+        .setCachePruned(pruneCache)
+        .setLockFile(lockFile != null ? lockFile
+            : lock || locked ? new File(descriptorFile.getAbsoluteFile().getParentFile(), LockFile.DEFAULT_NAME)
+            : null)
+        .setLocked(locked)
+        .setNativeLibrariesExtracted(nativeExtraction)
+        .setClassDataSharing(classDataSharing)
+        .setPackageIndexed(packageIndex)
+        .setServiceRegistry(serviceRegistry)
+        .setClasspathScanned(scanClasspath)
+        .setClasspathProfiled(profileClasspath)
+        .setClasspathProfileSize(profileClasses != null ? profileClasses : ClasspathProfiler.DEFAULT_CLASSES)
+        .setJarsStored(storedJars)
+        .setStoredJarsCache(storedJarsCache)
+        .setMerged(merge);
+
+    if (trainingCommand != null && !trainingCommand.isEmpty()) {
+      options.setTrainingCommand(trainingCommand);
+    }
 
     if (localRepository != null) {
       options.setLocalRepository(localRepository);
@@ -169,8 +428,110 @@ public class ResolveCommand extends DefaultCommand {
     options.setHttpProxy(httpProxy);
     options.setHttpsProxy(httpsProxy);
 
+    if (offline) {
+      options.setOffline(true);
+    }
+    if (releaseUpdatePolicy != null) {
+      options.setReleaseUpdatePolicy(releaseUpdatePolicy);
+    }
+    if (snapshotUpdatePolicy != null) {
+      options.setSnapshotUpdatePolicy(snapshotUpdatePolicy);
+    }
+    if (resolver != null) {
+      options.setResolver(resolver);
+    }
+
+    if (!watch && !fetch && !apply && !noDaemon) {
+      Map<String, File> resolved;
+      try {
+        resolved = ResolverDaemon.forward(socket, new ResolveRequest(descriptorFile, lib, options));
+      } catch (IllegalStateException e) {
+        throw new CLIException(e.getMessage(), e);
+      }
+      if (resolved != null) {
+        out().println(resolved.size() + " artifacts resolved by the resolver daemon");
+        return;
+      }
+    }
+
     StackResolution resolution = new StackResolution(stack, lib, options);
+    if (fetch) {
+      File plan = resolution.fetch();
+      out().println("Resolution plan staged in " + plan.getAbsolutePath() + ", apply it with --apply");
+      return;
+    }
+    if (apply) {
+      out().println(resolution.apply().size() + " artifacts applied from the resolution plan");
+      return;
+    }
     resolution.resolve();
+
+    if (watch) {
+      watch(descriptorFile, resolution);
+    }
+  }
+
+  /**
+   * Runs the resolver daemon until the JVM is stopped.
+   *
+   * @param socket the socket file
+   */
+  private void runDaemon(File socket) {
+    if (!ResolverDaemon.isSupported()) {
+      throw new CLIException("The resolver daemon requires Java 16 or later (Unix domain sockets)");
+    }
+    ResolverDaemon resolverDaemon = new ResolverDaemon(socket);
+    try {
+      resolverDaemon.bind();
+    } catch (IllegalStateException e) {
+      throw new CLIException(e.getMessage(), e);
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(resolverDaemon::close));
+    out().println("Resolver daemon listening on " + socket.getAbsolutePath());
+    resolverDaemon.serve();
+  }
+
+  /**
+   * Watches the stack descriptor, and updates the resolution each time it is modified. The resolution keeps its
+   * resolver, its cache and the resolution of the unchanged dependencies in memory. Returns when the thread is
+   * interrupted.
+   *
+   * @param descriptorFile the stack descriptor
+   * @param resolution     the resolution
+   */
+  private void watch(File descriptorFile, StackResolution resolution) {
+    Path descriptorPath = descriptorFile.getAbsoluteFile().toPath();
+    try (WatchService watcher = descriptorPath.getFileSystem().newWatchService()) {
+      descriptorPath.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      out().println("Watching " + descriptorPath + " for modifications");
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watcher.take();
+        boolean modified = false;
+        // Editors often write the file several times, so the events are drained for a short while.
+        do {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            modified |= descriptorPath.getFileName().equals(event.context());
+          }
+          key.reset();
+        } while ((key = watcher.poll(WATCH_QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null);
+        if (!modified || !descriptorFile.isFile()) {
+          continue;
+        }
+        long begin = System.currentTimeMillis();
+        try {
+          resolution.update(Stack.fromDescriptor(descriptorFile));
+          out().println("Stack updated in " + (System.currentTimeMillis() - begin) + " ms");
+        } catch (RuntimeException e) {
+          // Keep watching, the descriptor is likely being edited.
+          out().println("Cannot resolve the stack: " + e.getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new CLIException("Cannot watch the stack descriptor " + descriptorPath, e);
+    }
   }
 
 }
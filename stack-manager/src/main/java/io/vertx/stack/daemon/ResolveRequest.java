@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.daemon;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.stack.model.StackResolutionOptions;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request sent to the {@link ResolverDaemon}: the stack descriptor to resolve, the output directory and the
+ * resolution options. Paths are absolute, as the daemon does not share the working directory of the client. The
+ * request also carries the system properties of the client, used instead of the ones of the daemon to filter the
+ * stack descriptor, so {@code -D} overrides are honored.
+ */
+public class ResolveRequest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private String descriptor;
+  private String directory;
+  private StackResolutionOptions options = new StackResolutionOptions();
+  private Map<String, String> properties = new LinkedHashMap<>();
+
+  /**
+   * Creates an empty request, used for deserialization.
+   */
+  public ResolveRequest() {
+  }
+
+  /**
+   * Creates a request. The options are copied and the paths of the request and of the copy are made absolute, so
+   * the given options are not modified. The current system properties are captured.
+   *
+   * @param descriptor the stack descriptor
+   * @param directory  the output directory
+   * @param options    the resolution options
+   */
+  public ResolveRequest(File descriptor, File directory, StackResolutionOptions options) {
+    this.descriptor = descriptor.getAbsolutePath();
+    this.directory = directory.getAbsolutePath();
+    this.options = MAPPER.convertValue(options, StackResolutionOptions.class);
+    System.getProperties().forEach((key, value) -> {
+      if (key instanceof String && value instanceof String) {
+        properties.put((String) key, (String) value);
+      }
+    });
+    if (this.options.getLockFile() != null) {
+      this.options.setLockFile(this.options.getLockFile().getAbsoluteFile());
+    }
+    if (this.options.getCacheFile() != null) {
+      this.options.setCacheFile(this.options.getCacheFile().getAbsoluteFile());
+    }
+    if (this.options.getStoredJarsCache() != null) {
+      this.options.setStoredJarsCache(this.options.getStoredJarsCache().getAbsoluteFile());
+    }
+    if (this.options.getLocalRepository() != null) {
+      this.options.setLocalRepository(new File(this.options.getLocalRepository()).getAbsolutePath());
+    }
+  }
+
+  public String getDescriptor() {
+    return descriptor;
+  }
+
+  public ResolveRequest setDescriptor(String descriptor) {
+    this.descriptor = descriptor;
+    return this;
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public ResolveRequest setDirectory(String directory) {
+    this.directory = directory;
+    return this;
+  }
+
+  public StackResolutionOptions getOptions() {
+    return options;
+  }
+
+  public ResolveRequest setOptions(StackResolutionOptions options) {
+    this.options = options;
+    return this;
+  }
+
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  public ResolveRequest setProperties(Map<String, String> properties) {
+    this.properties = properties;
+    return this;
+  }
+}
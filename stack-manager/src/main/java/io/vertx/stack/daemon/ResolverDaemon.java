@@ -0,0 +1,287 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.daemon;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.stack.model.Stack;
+import io.vertx.stack.model.StackResolution;
+import io.vertx.stack.utils.Home;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A daemon resolving stacks on behalf of the {@code resolve} command. It listens on a Unix domain socket, and keeps a
+ * {@link StackResolution} per output directory and options in memory, so the resolver, its session, the cache and
+ * the resolution of the unchanged dependencies stay warm across requests (see {@link StackResolution#update(Stack)}).
+ * <p>
+ * A request is a JSON {@link ResolveRequest} written by the client, which then shuts down its output. The response
+ * is a JSON object with either the {@code resolved} artifacts (GAV to file) or an {@code error} message. Requests
+ * for the same output directory are processed one at a time.
+ * <p>
+ * Unix domain sockets require Java 16 or later. On older JVMs the daemon cannot be started and
+ * {@link #forward(File, ResolveRequest)} always lets the client resolve in-process.
+ */
+public class ResolverDaemon implements Closeable {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the default socket file.
+   */
+  public static final String SOCKET_NAME = ".stack-manager-daemon.sock";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private final File socket;
+  private final Map<String, StackResolution> resolutions = new ConcurrentHashMap<>();
+  private final Map<String, Object> locks = new ConcurrentHashMap<>();
+  private ServerSocketChannel server;
+
+  /**
+   * Creates a daemon.
+   *
+   * @param socket the socket file
+   */
+  public ResolverDaemon(File socket) {
+    this.socket = socket;
+  }
+
+  /**
+   * @return the default socket file: {@code $VERTX_HOME/.stack-manager-daemon.sock} if {@code VERTX_HOME} is set,
+   * {@code ~/.vertx/.stack-manager-daemon.sock} otherwise.
+   */
+  public static File defaultSocket() {
+    File home = Home.getVertxHome();
+    if (home == null) {
+      home = new File(System.getProperty("user.home"), ".vertx");
+    }
+    return new File(home, SOCKET_NAME);
+  }
+
+  /**
+   * @return whether or not the daemon is supported by the running JVM.
+   */
+  public static boolean isSupported() {
+    return UnixSockets.isSupported();
+  }
+
+  /**
+   * Binds the socket. A stale socket file, left by a daemon that has not been stopped properly, is replaced. The
+   * socket file is only accessible by its owner: it is bound in a directory only accessible by the owner, restricted,
+   * and then moved to its location, so it is never reachable with broader permissions.
+   *
+   * @throws IllegalStateException if the socket cannot be bound, or if another daemon is listening on it
+   */
+  public void bind() {
+    if (socket.exists()) {
+      if (isListening(socket)) {
+        throw new IllegalStateException("A resolver daemon is already listening on " + socket.getAbsolutePath());
+      }
+      LOGGER.debug("Removing the stale socket " + socket.getAbsolutePath());
+      socket.delete();
+    }
+    try {
+      Path parent = Files.createDirectories(socket.getAbsoluteFile().getParentFile().toPath());
+      Path directory = privateDirectory(parent);
+      if (directory == null) {
+        LOGGER.debug("Cannot restrict the permissions of " + socket.getAbsolutePath());
+        server = UnixSockets.bind(socket);
+      } else {
+        Path bound = directory.resolve(socket.getName());
+        try {
+          server = UnixSockets.bind(bound.toFile());
+          Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+          Files.move(bound, socket.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+          close();
+          throw e;
+        } finally {
+          Files.deleteIfExists(bound);
+          Files.deleteIfExists(directory);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot bind the resolver daemon to " + socket.getAbsolutePath(), e);
+    }
+    LOGGER.info("Resolver daemon listening on " + socket.getAbsolutePath());
+  }
+
+  /**
+   * Checks whether a daemon is listening on the given socket file.
+   *
+   * @param socket the socket file
+   * @return {@code true} if a connection can be established, {@code false} if the socket is stale
+   */
+  private static boolean isListening(File socket) {
+    SocketChannel channel;
+    try {
+      channel = UnixSockets.connect(socket);
+    } catch (IOException e) {
+      return false;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOGGER.debug("Cannot close the connection to " + socket.getAbsolutePath(), e);
+    }
+    return true;
+  }
+
+  /**
+   * Creates a temporary directory only accessible by the owner.
+   *
+   * @param parent the parent directory
+   * @return the created directory, {@code null} if the file system does not support the POSIX permissions
+   */
+  private static Path privateDirectory(Path parent) throws IOException {
+    try {
+      return Files.createTempDirectory(parent, SOCKET_NAME,
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Serves the requests, each connection being handled by its own thread. Returns when the daemon is closed.
+   */
+  public void serve() {
+    while (server.isOpen()) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        LOGGER.error("Cannot accept a connection", e);
+        continue;
+      }
+      Thread thread = new Thread(() -> handle(channel), "stack-resolver-daemon");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  private void handle(SocketChannel connection) {
+    Map<String, Object> response = new LinkedHashMap<>();
+    try (SocketChannel channel = connection) {
+      try {
+        ResolveRequest request = MAPPER.readValue(Channels.newInputStream(channel).readAllBytes(),
+          ResolveRequest.class);
+        response.put("resolved", resolve(request));
+      } catch (RuntimeException | IOException e) {
+        LOGGER.error("Cannot resolve the stack", e);
+        response.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+      }
+      OutputStream out = Channels.newOutputStream(channel);
+      out.write(MAPPER.writeValueAsBytes(response));
+      out.flush();
+    } catch (IOException e) {
+      LOGGER.error("Cannot send the response", e);
+    }
+  }
+
+  private Map<String, File> resolve(ResolveRequest request) throws IOException {
+    File directory = new File(request.getDirectory());
+    // The descriptor is filtered with the system properties of the client
+    Stack stack = Stack.fromDescriptor(new File(request.getDescriptor())).setProperties(request.getProperties());
+    String key = directory.getAbsolutePath() + " " + MAPPER.writeValueAsString(request.getOptions());
+    StackResolution resolution = resolutions.computeIfAbsent(key,
+      k -> new StackResolution(stack, directory, request.getOptions()));
+    synchronized (locks.computeIfAbsent(directory.getAbsolutePath(), k -> new Object())) {
+      LOGGER.info("Resolving " + request.getDescriptor() + " into " + directory.getAbsolutePath());
+      return resolution.update(stack);
+    }
+  }
+
+  /**
+   * Closes the daemon, and deletes its socket file.
+   */
+  @Override
+  public void close() {
+    try {
+      if (server != null) {
+        server.close();
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Cannot close the resolver daemon", e);
+    }
+    socket.delete();
+  }
+
+  /**
+   * Forwards a request to the daemon listening on the given socket.
+   *
+   * @param socket  the socket file
+   * @param request the request
+   * @return the resolved artifacts, {@code null} if no daemon is available, in which case the client resolves
+   * in-process
+   * @throws IllegalStateException if the daemon failed to resolve the stack
+   */
+  public static Map<String, File> forward(File socket, ResolveRequest request) {
+    if (!isSupported() || !socket.exists()) {
+      return null;
+    }
+    SocketChannel connection;
+    try {
+      connection = UnixSockets.connect(socket);
+    } catch (IOException e) {
+      LOGGER.debug("No resolver daemon listening on " + socket.getAbsolutePath() + ": " + e.getMessage());
+      return null;
+    }
+    Map<?, ?> response;
+    try (SocketChannel channel = connection) {
+      // The stream is not closed, as it would close the channel
+      OutputStream out = Channels.newOutputStream(channel);
+      out.write(MAPPER.writeValueAsBytes(request));
+      out.flush();
+      channel.shutdownOutput();
+      try (InputStream in = Channels.newInputStream(channel)) {
+        response = MAPPER.readValue(in.readAllBytes(), Map.class);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("The resolver daemon listening on " + socket.getAbsolutePath()
+        + " did not answer", e);
+    }
+    if (response.get("error") != null) {
+      throw new IllegalStateException(response.get("error").toString());
+    }
+    Map<String, File> resolved = new LinkedHashMap<>();
+    ((Map<?, ?>) response.get("resolved")).forEach((gav, file) -> resolved.put(gav.toString(),
+      new File(file.toString())));
+    return resolved;
+  }
+}
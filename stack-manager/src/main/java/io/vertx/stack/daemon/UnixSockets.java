@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Access to the Unix domain socket channels. They are only available on Java 16+, while the stack manager runs on
+ * Java 11, so the API is looked up reflectively. When not available, the daemon cannot be started and the clients
+ * resolve in-process.
+ */
+class UnixSockets {
+
+  private static final ProtocolFamily UNIX;
+  private static final Method ADDRESS;
+  private static final Method OPEN_SERVER;
+  private static final Method OPEN_CLIENT;
+
+  static {
+    ProtocolFamily family = null;
+    Method address = null;
+    Method server = null;
+    Method client = null;
+    try {
+      family = StandardProtocolFamily.valueOf("UNIX");
+      address = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+      server = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+      client = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+    } catch (IllegalArgumentException | ReflectiveOperationException e) {
+      family = null;
+    }
+    UNIX = family;
+    ADDRESS = address;
+    OPEN_SERVER = server;
+    OPEN_CLIENT = client;
+  }
+
+  private UnixSockets() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * @return whether or not the Unix domain sockets are supported by the running JVM.
+   */
+  static boolean isSupported() {
+    return UNIX != null;
+  }
+
+  /**
+   * Opens a server channel bound to the given socket file.
+   *
+   * @param socket the socket file, must not exist
+   * @return the channel
+   * @throws IOException if the channel cannot be bound
+   */
+  static ServerSocketChannel bind(File socket) throws IOException {
+    ServerSocketChannel channel = (ServerSocketChannel) invoke(OPEN_SERVER, UNIX);
+    try {
+      channel.bind(address(socket));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  /**
+   * Connects to the given socket file.
+   *
+   * @param socket the socket file
+   * @return the connected channel
+   * @throws IOException if the connection fails
+   */
+  static SocketChannel connect(File socket) throws IOException {
+    SocketChannel channel = (SocketChannel) invoke(OPEN_CLIENT, UNIX);
+    try {
+      channel.connect(address(socket));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  private static SocketAddress address(File socket) throws IOException {
+    return (SocketAddress) invoke(ADDRESS, socket.getAbsolutePath());
+  }
+
+  private static Object invoke(Method method, Object... args) throws IOException {
+    if (!isSupported()) {
+      throw new IOException("Unix domain sockets require Java 16 or later");
+    }
+    try {
+      return method.invoke(null, args);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
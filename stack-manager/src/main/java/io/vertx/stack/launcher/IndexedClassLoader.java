@@ -0,0 +1,292 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.launcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+/**
+ * A class loader loading the classes and resources of the jars of a directory, using the {@link PackageIndex} of the
+ * directory to only look into the jars containing the requested package. Jars are opened lazily, on the first
+ * lookup they serve. When a {@link ServiceRegistry} is available, the service provider configuration files
+ * ({@code META-INF/services/*}) are served from the registry, without looking into the jars.
+ * <p>
+ * The {@link #main(String[])} method launches an application with this class loader:
+ * {@code java -cp lib/vertx-stack-manager.jar io.vertx.stack.launcher.IndexedClassLoader <main-class> [args]}. The
+ * directory is read from the {@code vertx.stack.lib} system property, and defaults to {@code lib}.
+ */
+public class IndexedClassLoader extends ClassLoader implements Closeable {
+
+  /**
+   * The system property configuring the directory used by {@link #main(String[])}.
+   */
+  public static final String LIB_DIRECTORY_PROPERTY = "vertx.stack.lib";
+
+  static {
+    registerAsParallelCapable();
+  }
+
+  private final File directory;
+  private final PackageIndex index;
+  private final ServiceRegistry services;
+  private final Map<String, Jar> jars = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a class loader.
+   *
+   * @param directory the directory containing the indexed jars
+   * @param index     the index
+   * @param parent    the parent class loader
+   */
+  public IndexedClassLoader(File directory, PackageIndex index, ClassLoader parent) {
+    this(directory, index, null, parent);
+  }
+
+  /**
+   * Creates a class loader.
+   *
+   * @param directory the directory containing the indexed jars
+   * @param index     the index
+   * @param services  the service registry of the jars, {@code null} to read the services from the jars
+   * @param parent    the parent class loader
+   */
+  public IndexedClassLoader(File directory, PackageIndex index, ServiceRegistry services, ClassLoader parent) {
+    super(parent);
+    this.directory = directory;
+    this.index = Objects.requireNonNull(index);
+    this.services = services;
+  }
+
+  /**
+   * Creates a class loader using the index and, if any, the service registry stored in the given directory.
+   *
+   * @param directory the directory
+   * @param parent    the parent class loader
+   * @return the class loader
+   * @throws IllegalStateException if the directory does not contain an index
+   */
+  public static IndexedClassLoader create(File directory, ClassLoader parent) {
+    PackageIndex index = PackageIndex.read(directory);
+    if (index == null) {
+      throw new IllegalStateException("No package index in " + directory.getAbsolutePath()
+        + " - resolve the stack with the package index enabled");
+    }
+    return new IndexedClassLoader(directory, index, ServiceRegistry.read(directory), parent);
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    String path = name.replace('.', '/') + ".class";
+    for (String jarName : index.getJars(PackageIndex.directory(path))) {
+      Jar jar = jar(jarName);
+      JarEntry entry = jar.file.getJarEntry(path);
+      if (entry != null) {
+        return define(name, jar, entry);
+      }
+    }
+    throw new ClassNotFoundException(name);
+  }
+
+  private Class<?> define(String name, Jar jar, JarEntry entry) throws ClassNotFoundException {
+    byte[] bytes;
+    try (InputStream in = jar.file.getInputStream(entry)) {
+      bytes = in.readAllBytes();
+    } catch (IOException e) {
+      throw new ClassNotFoundException(name, e);
+    }
+    int index = name.lastIndexOf('.');
+    if (index != -1) {
+      definePackage(name.substring(0, index), jar);
+    }
+    // The code signers are only available once the entry has been read
+    CodeSigner[] signers = entry.getCodeSigners();
+    ProtectionDomain domain = jar.domains.computeIfAbsent(signers == null ? Collections.emptyList()
+      : Arrays.asList(signers), key -> new ProtectionDomain(new CodeSource(jar.url, signers), null, this, null));
+    return defineClass(name, bytes, 0, bytes.length, domain);
+  }
+
+  private void definePackage(String name, Jar jar) {
+    if (getDefinedPackage(name) != null) {
+      return;
+    }
+    Manifest manifest = jar.manifest();
+    try {
+      if (manifest == null) {
+        definePackage(name, null, null, null, null, null, null, null);
+      } else {
+        Attributes main = manifest.getMainAttributes();
+        boolean sealed = "true".equalsIgnoreCase(main.getValue(Attributes.Name.SEALED));
+        definePackage(name, main.getValue(Attributes.Name.SPECIFICATION_TITLE),
+          main.getValue(Attributes.Name.SPECIFICATION_VERSION), main.getValue(Attributes.Name.SPECIFICATION_VENDOR),
+          main.getValue(Attributes.Name.IMPLEMENTATION_TITLE), main.getValue(Attributes.Name.IMPLEMENTATION_VERSION),
+          main.getValue(Attributes.Name.IMPLEMENTATION_VENDOR), sealed ? jar.url : null);
+      }
+    } catch (IllegalArgumentException e) {
+      // Defined concurrently
+    }
+  }
+
+  @Override
+  protected URL findResource(String name) {
+    if (services != null && name.startsWith(ServiceRegistry.SERVICES)) {
+      return serviceResource(name);
+    }
+    for (String jarName : index.getJars(PackageIndex.directory(name))) {
+      Jar jar = jar(jarName);
+      if (jar.file.getJarEntry(name) != null) {
+        return jar.resource(name);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected Enumeration<URL> findResources(String name) {
+    if (services != null && name.startsWith(ServiceRegistry.SERVICES)) {
+      URL url = serviceResource(name);
+      return url == null ? Collections.emptyEnumeration() : Collections.enumeration(Collections.singletonList(url));
+    }
+    List<URL> urls = new ArrayList<>();
+    for (String jarName : index.getJars(PackageIndex.directory(name))) {
+      Jar jar = jar(jarName);
+      if (jar.file.getJarEntry(name) != null) {
+        urls.add(jar.resource(name));
+      }
+    }
+    return Collections.enumeration(urls);
+  }
+
+  /**
+   * Creates a resource containing the merged provider configuration of a service.
+   */
+  private URL serviceResource(String name) {
+    List<String> providers = services.getProviders(name.substring(ServiceRegistry.SERVICES.length()));
+    if (providers == null) {
+      return null;
+    }
+    byte[] content = String.join("\n", providers).getBytes(StandardCharsets.UTF_8);
+    try {
+      return new URL("vertx-services", null, -1, "/" + name, new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL url) {
+          return new URLConnection(url) {
+            @Override
+            public void connect() {
+              connected = true;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+              return new ByteArrayInputStream(content);
+            }
+          };
+        }
+      });
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException("Invalid service resource " + name, e);
+    }
+  }
+
+  private Jar jar(String name) {
+    return jars.computeIfAbsent(name, n -> {
+      File file = new File(directory, n);
+      try {
+        return new Jar(new JarFile(file, true, ZipFile.OPEN_READ, Runtime.version()), file.toURI().toURL());
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to open " + file.getAbsolutePath(), e);
+      }
+    });
+  }
+
+  /**
+   * Closes the opened jars.
+   */
+  @Override
+  public void close() throws IOException {
+    for (Jar jar : jars.values()) {
+      jar.file.close();
+    }
+    jars.clear();
+  }
+
+  /**
+   * Launches an application using an {@link IndexedClassLoader} over the indexed directory.
+   *
+   * @param args the main class, followed by its arguments
+   * @throws Exception if the application cannot be launched
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      throw new IllegalArgumentException("Usage: IndexedClassLoader <main-class> [args...]");
+    }
+    File directory = new File(System.getProperty(LIB_DIRECTORY_PROPERTY, "lib"));
+    IndexedClassLoader loader = create(directory, ClassLoader.getPlatformClassLoader());
+    Thread.currentThread().setContextClassLoader(loader);
+    Method main = loader.loadClass(args[0]).getMethod("main", String[].class);
+    main.invoke(null, (Object) Arrays.copyOfRange(args, 1, args.length));
+  }
+
+  private static class Jar {
+
+    private final JarFile file;
+    private final URL url;
+    private final Map<List<CodeSigner>, ProtectionDomain> domains = new ConcurrentHashMap<>();
+    private volatile Optional<Manifest> manifest;
+
+    private Jar(JarFile file, URL url) {
+      this.file = file;
+      this.url = url;
+    }
+
+    private Manifest manifest() {
+      if (manifest == null) {
+        try {
+          manifest = Optional.ofNullable(file.getManifest());
+        } catch (IOException e) {
+          manifest = Optional.empty();
+        }
+      }
+      return manifest.orElse(null);
+    }
+
+    private URL resource(String name) {
+      try {
+        return new URL("jar:" + url + "!/" + name);
+      } catch (MalformedURLException e) {
+        throw new IllegalStateException("Invalid resource " + name + " in " + url, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.launcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An index mapping the packages (more precisely, the directories containing classes or resources, such as
+ * {@code io/vertx/core}) to the jars containing them. It lets a class loader go straight to the jars serving a class
+ * instead of probing every jar of the class path.
+ * <p>
+ * The index is stored in the output directory ({@code vertx-packages.idx}) using the format of the JDK jar index
+ * ({@code META-INF/INDEX.LIST}): a header, then for each jar, its name followed by its directories, and an empty
+ * line. Jars are listed in class path order. Entries of multi-release jars are indexed under their base directory.
+ */
+public class PackageIndex {
+
+  /**
+   * The name of the index file.
+   */
+  public static final String FILE_NAME = "vertx-packages.idx";
+
+  private static final String HEADER = "JarIndex-Version: 1.0";
+  private static final String VERSIONS = "META-INF/versions/";
+
+  private final List<String> jars = new ArrayList<>();
+  private final Map<String, List<String>> packages = new HashMap<>();
+
+  /**
+   * Builds the index of the given jars.
+   *
+   * @param classpath the jars, in class path order, they must be located in the same directory
+   * @return the index
+   */
+  public static PackageIndex build(List<File> classpath) {
+    // The central directories are read in parallel, the index keeps the class path order.
+    List<Set<String>> directories = classpath.parallelStream()
+      .map(PackageIndex::directories)
+      .collect(Collectors.toList());
+    PackageIndex index = new PackageIndex();
+    for (int i = 0; i < classpath.size(); i++) {
+      index.add(classpath.get(i).getName(), directories.get(i));
+    }
+    return index;
+  }
+
+  private static Set<String> directories(File jar) {
+    Set<String> directories = new TreeSet<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) {
+          directories.add(directory(entry.getName()));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the content of " + jar.getAbsolutePath(), e);
+    }
+    return directories;
+  }
+
+  /**
+   * Gets the directory of the given entry or resource name, the root directory being the empty string. The
+   * versioned entries of multi-release jars are mapped to their base directory.
+   *
+   * @param name the name, such as {@code io/vertx/core/Vertx.class}
+   * @return the directory, such as {@code io/vertx/core}
+   */
+  public static String directory(String name) {
+    if (name.startsWith(VERSIONS)) {
+      int index = name.indexOf('/', VERSIONS.length());
+      if (index != -1) {
+        name = name.substring(index + 1);
+      }
+    }
+    int index = name.lastIndexOf('/');
+    return index == -1 ? "" : name.substring(0, index);
+  }
+
+  private void add(String jar, Collection<String> directories) {
+    jars.add(jar);
+    for (String directory : directories) {
+      packages.computeIfAbsent(directory, d -> new ArrayList<>(1)).add(jar);
+    }
+  }
+
+  /**
+   * @return the indexed jars, in class path order.
+   */
+  public List<String> getJars() {
+    return Collections.unmodifiableList(jars);
+  }
+
+  /**
+   * Gets the jars containing the given directory.
+   *
+   * @param directory the directory, such as {@code io/vertx/core}
+   * @return the jar names, in class path order, empty if none
+   */
+  public List<String> getJars(String directory) {
+    return packages.getOrDefault(directory, Collections.emptyList());
+  }
+
+  /**
+   * Writes the index into the given directory.
+   *
+   * @param directory the directory
+   * @return the index file
+   */
+  public File write(File directory) {
+    Map<String, List<String>> byJar = new LinkedHashMap<>();
+    jars.forEach(jar -> byJar.put(jar, new ArrayList<>()));
+    packages.forEach((pkg, list) -> list.forEach(jar -> byJar.get(jar).add(pkg)));
+    File file = new File(directory, FILE_NAME);
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.newLine();
+      for (Map.Entry<String, List<String>> entry : byJar.entrySet()) {
+        writer.newLine();
+        writer.write(entry.getKey());
+        writer.newLine();
+        List<String> directories = entry.getValue();
+        Collections.sort(directories);
+        for (String dir : directories) {
+          // The root directory is stored as '/', as an empty line ends the section
+          writer.write(dir.isEmpty() ? "/" : dir);
+          writer.newLine();
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write the package index " + file.getAbsolutePath(), e);
+    }
+    return file;
+  }
+
+  /**
+   * Reads the index stored in the given directory.
+   *
+   * @param directory the directory
+   * @return the index, {@code null} if the directory does not contain an index
+   */
+  public static PackageIndex read(File directory) {
+    File file = new File(directory, FILE_NAME);
+    if (!file.isFile()) {
+      return null;
+    }
+    PackageIndex index = new PackageIndex();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line = reader.readLine();
+      if (!HEADER.equals(line)) {
+        throw new IllegalStateException("Invalid package index " + file.getAbsolutePath());
+      }
+      String jar = null;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          jar = null;
+        } else if (jar == null) {
+          jar = line;
+          index.jars.add(jar);
+        } else {
+          index.packages.computeIfAbsent(line.equals("/") ? "" : line, d -> new ArrayList<>(1)).add(jar);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the package index " + file.getAbsolutePath(), e);
+    }
+    return index;
+  }
+}
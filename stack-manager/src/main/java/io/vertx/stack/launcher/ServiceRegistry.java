@@ -0,0 +1,203 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.launcher;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A registry merging the service provider configuration files ({@code META-INF/services/*}) of a set of jars. The
+ * registry is stored in the output directory ({@code vertx-services.idx}), with one line per service:
+ * {@code service=provider1,provider2}, the providers being listed in class path order.
+ * <p>
+ * The {@link IndexedClassLoader} serves the {@code META-INF/services} resources from this registry, so a
+ * {@link java.util.ServiceLoader} lookup reads a single in-memory entry instead of scanning every jar.
+ */
+public class ServiceRegistry {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the registry file.
+   */
+  public static final String FILE_NAME = "vertx-services.idx";
+
+  /**
+   * The location of the service provider configuration files.
+   */
+  public static final String SERVICES = "META-INF/services/";
+
+  private final Map<String, List<String>> services = new TreeMap<>();
+  private final List<String> duplicates = new ArrayList<>();
+
+  /**
+   * Builds the registry of the given jars. A provider declared by several jars is only registered once, and
+   * reported in the diagnostics.
+   *
+   * @param classpath the jars, in class path order
+   * @return the registry
+   */
+  public static ServiceRegistry build(List<File> classpath) {
+    // The jars are read in parallel, the providers keep the class path order.
+    List<Map<String, List<String>>> declarations = classpath.parallelStream()
+      .map(ServiceRegistry::declarations)
+      .collect(Collectors.toList());
+    ServiceRegistry registry = new ServiceRegistry();
+    Map<String, String> declaringJars = new HashMap<>();
+    for (int i = 0; i < classpath.size(); i++) {
+      String jar = classpath.get(i).getName();
+      declarations.get(i).forEach((service, providers) -> {
+        List<String> registered = registry.services.computeIfAbsent(service, s -> new ArrayList<>());
+        for (String provider : providers) {
+          String previous = declaringJars.putIfAbsent(service + "=" + provider, jar);
+          if (previous == null) {
+            registered.add(provider);
+          } else if (!previous.equals(jar)) {
+            registry.duplicates.add("Provider " + provider + " of " + service + " is declared by " + previous
+              + " and " + jar);
+          }
+        }
+      });
+    }
+    registry.duplicates.forEach(LOGGER::warn);
+    return registry;
+  }
+
+  private static Map<String, List<String>> declarations(File jar) {
+    Map<String, List<String>> declarations = new LinkedHashMap<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.startsWith(SERVICES) || name.length() == SERVICES.length()
+          || name.indexOf('/', SERVICES.length()) != -1) {
+          continue;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+          declarations.put(name.substring(SERVICES.length()), parse(in));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the services of " + jar.getAbsolutePath(), e);
+    }
+    return declarations;
+  }
+
+  /**
+   * Parses a provider configuration file, as specified by {@link java.util.ServiceLoader}.
+   */
+  private static List<String> parse(InputStream in) throws IOException {
+    List<String> providers = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      int comment = line.indexOf('#');
+      String provider = (comment == -1 ? line : line.substring(0, comment)).trim();
+      if (!provider.isEmpty() && !providers.contains(provider)) {
+        providers.add(provider);
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * @return the registered services.
+   */
+  public Set<String> getServices() {
+    return Collections.unmodifiableSet(services.keySet());
+  }
+
+  /**
+   * Gets the providers of the given service.
+   *
+   * @param service the service interface name
+   * @return the providers, in class path order, {@code null} if the service is not registered
+   */
+  public List<String> getProviders(String service) {
+    List<String> providers = services.get(service);
+    return providers == null ? null : Collections.unmodifiableList(providers);
+  }
+
+  /**
+   * @return the diagnostics of the providers declared by several jars, empty if none.
+   */
+  public List<String> getDuplicates() {
+    return Collections.unmodifiableList(duplicates);
+  }
+
+  /**
+   * Writes the registry into the given directory.
+   *
+   * @param directory the directory
+   * @return the registry file
+   */
+  public File write(File directory) {
+    File file = new File(directory, FILE_NAME);
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("# Generated by the vert.x stack manager - do not edit");
+      writer.newLine();
+      for (Map.Entry<String, List<String>> entry : services.entrySet()) {
+        writer.write(entry.getKey() + "=" + String.join(",", entry.getValue()));
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write the service registry " + file.getAbsolutePath(), e);
+    }
+    return file;
+  }
+
+  /**
+   * Reads the registry stored in the given directory.
+   *
+   * @param directory the directory
+   * @return the registry, {@code null} if the directory does not contain a registry
+   */
+  public static ServiceRegistry read(File directory) {
+    File file = new File(directory, FILE_NAME);
+    if (!file.isFile()) {
+      return null;
+    }
+    ServiceRegistry registry = new ServiceRegistry();
+    try {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        int index = line.indexOf('=');
+        if (line.startsWith("#") || index == -1) {
+          continue;
+        }
+        String providers = line.substring(index + 1);
+        registry.services.put(line.substring(0, index),
+          providers.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(providers.split(","))));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the service registry " + file.getAbsolutePath(), e);
+    }
+    return registry;
+  }
+}
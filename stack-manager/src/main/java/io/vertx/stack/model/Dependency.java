@@ -18,6 +18,7 @@ package io.vertx.stack.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.vertx.stack.resolver.ResolutionOptions;
+import io.vertx.stack.utils.Platform;
 import org.apache.maven.model.Exclusion;
 
 /**
@@ -34,6 +35,8 @@ public class Dependency extends org.apache.maven.model.Dependency {
 
   private boolean transitive = true;
 
+  private boolean matchPlatform;
+
   /**
    * Creates a new {@link Dependency}.
    *
@@ -105,6 +108,24 @@ public class Dependency extends org.apache.maven.model.Dependency {
     return this;
   }
 
+  /**
+   * @return {@code true} if only the platform specific artifacts matching the current platform are resolved.
+   */
+  public boolean isMatchPlatform() {
+    return matchPlatform;
+  }
+
+  /**
+   * Sets whether or not the resolution only keeps the platform specific artifacts (such as {@code linux-x86_64}
+   * classifiers) matching the current platform. Disabled by default.
+   *
+   * @return the current {@link Dependency} instance.
+   */
+  public Dependency setMatchPlatform(boolean matchPlatform) {
+    this.matchPlatform = matchPlatform;
+    return this;
+  }
+
   /**
    * Creates the {@link ResolutionOptions} object for the dependency.
    *
@@ -113,6 +134,9 @@ public class Dependency extends org.apache.maven.model.Dependency {
   public ResolutionOptions getResolutionOptions() {
     ResolutionOptions options = new ResolutionOptions();
     options.setWithTransitive(transitive);
+    if (matchPlatform) {
+      options.setPlatform(Platform.classifier());
+    }
     for (Exclusion exclusion : getExclusions()) {
       options.addExclusion(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
     }
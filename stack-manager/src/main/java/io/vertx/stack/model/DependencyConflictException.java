@@ -19,7 +19,9 @@ package io.vertx.stack.model;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -29,11 +31,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class DependencyConflictException extends RuntimeException {
 
+  private static final long serialVersionUID = 1L;
+
   private final String artifact;
   private final String version;
   private final List<String> trace;
   private final String conflictingDependency;
   private final Artifact conflictingArtifact;
+  private final List<DependencyConflictException> conflicts;
 
   /**
    * Creates a {@link DependencyConflictException}.
@@ -49,6 +54,30 @@ public class DependencyConflictException extends RuntimeException {
     this.trace = trace;
     this.conflictingDependency = conflictingDependency;
     this.conflictingArtifact = conflictingArtifact;
+    this.conflicts = Collections.singletonList(this);
+  }
+
+  /**
+   * Creates a {@link DependencyConflictException} reporting several conflicts. The first conflict of the list is
+   * used as the main conflict.
+   *
+   * @param conflicts the conflicts, must not be empty
+   */
+  public DependencyConflictException(List<DependencyConflictException> conflicts) {
+    DependencyConflictException first = conflicts.get(0);
+    this.artifact = first.artifact;
+    this.version = first.version;
+    this.trace = first.trace;
+    this.conflictingDependency = first.conflictingDependency;
+    this.conflictingArtifact = first.conflictingArtifact;
+    this.conflicts = Collections.unmodifiableList(new ArrayList<>(conflicts));
+  }
+
+  /**
+   * @return all the detected conflicts, containing only this exception when a single conflict has been detected.
+   */
+  public List<DependencyConflictException> getConflicts() {
+    return conflicts;
   }
 
   /**
@@ -59,7 +88,15 @@ public class DependencyConflictException extends RuntimeException {
    */
   @Override
   public String getMessage() {
+    if (conflicts.size() > 1) {
+      return conflicts.size() + " conflicts detected:\n" + conflicts.stream()
+        .map(DependencyConflictException::getConflictMessage)
+        .collect(Collectors.joining("\n"));
+    }
+    return getConflictMessage();
+  }
 
+  private String getConflictMessage() {
     return "Conflict detected for artifact " + artifact + " - version " + version + " was already selected" +
       " by " + trace +
       " while " + conflictingDependency + " depends on version " + conflictingArtifact.getVersion() +
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.model;
+
+import io.vertx.stack.resolver.ResolutionOptions;
+
+import java.util.Objects;
+
+/**
+ * Identifies the resolution of a stack dependency: its GACV and its resolution options (transitivity, exclusions and
+ * platform). Two dependencies with the same key resolve to the same artifacts.
+ */
+public class DependencyKey {
+
+  private String gacv;
+  private ResolutionOptions options;
+
+  /**
+   * Creates the key of a dependency.
+   *
+   * @param dependency the dependency
+   * @return the key
+   */
+  public static DependencyKey of(Dependency dependency) {
+    return new DependencyKey().setGacv(dependency.getGACV()).setOptions(dependency.getResolutionOptions());
+  }
+
+  public String getGacv() {
+    return gacv;
+  }
+
+  public DependencyKey setGacv(String gacv) {
+    this.gacv = gacv;
+    return this;
+  }
+
+  public ResolutionOptions getOptions() {
+    return options;
+  }
+
+  public DependencyKey setOptions(ResolutionOptions options) {
+    this.options = options;
+    return this;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    DependencyKey that = (DependencyKey) o;
+    return Objects.equals(gacv, that.gacv) && Objects.equals(options, that.options);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(gacv, options);
+  }
+
+  @Override
+  public String toString() {
+    return gacv;
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents a lock file ({@code vertx-stack.lock}). It lists every artifact selected by a stack resolution, with
+ * its coordinates, checksum and provenance. A locked resolution only fetches these artifacts and does not collect
+ * any dependency graph. The dependencies of the locked stack are recorded too, so a locked resolution detects a
+ * modification of the stack descriptor.
+ */
+public class LockFile {
+
+  /**
+   * The default name of the lock file.
+   */
+  public static final String DEFAULT_NAME = "vertx-stack.lock";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private List<DependencyKey> stack = new ArrayList<>();
+  private List<Entry> artifacts = new ArrayList<>();
+
+  /**
+   * @return the dependencies of the locked stack, in declaration order, empty if none.
+   */
+  public List<DependencyKey> getStack() {
+    return stack;
+  }
+
+  /**
+   * Sets the dependencies of the locked stack.
+   *
+   * @param stack the dependencies
+   * @return the current {@link LockFile} instance
+   */
+  public LockFile setStack(List<DependencyKey> stack) {
+    this.stack = stack;
+    return this;
+  }
+
+  /**
+   * @return the locked artifacts, empty if none.
+   */
+  public List<Entry> getArtifacts() {
+    return artifacts;
+  }
+
+  /**
+   * Sets the locked artifacts.
+   *
+   * @param artifacts the artifacts
+   * @return the current {@link LockFile} instance
+   */
+  public LockFile setArtifacts(List<Entry> artifacts) {
+    this.artifacts = artifacts;
+    return this;
+  }
+
+  /**
+   * Adds a locked artifact.
+   *
+   * @param entry the entry
+   * @return the current {@link LockFile} instance
+   */
+  public LockFile addArtifact(Entry entry) {
+    artifacts.add(entry);
+    return this;
+  }
+
+  /**
+   * Writes the lock file. The file is left untouched if its content does not change.
+   *
+   * @param file the output file
+   * @return {@code true} if the file has been written, {@code false} if it was up to date
+   */
+  public boolean write(File file) {
+    try {
+      byte[] content = MAPPER.writeValueAsBytes(this);
+      if (file.isFile() && Arrays.equals(content, Files.readAllBytes(file.toPath()))) {
+        return false;
+      }
+      Files.write(file.toPath(), content);
+      return true;
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot write the lock file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Reads a lock file.
+   *
+   * @param file the lock file
+   * @return the read lock file
+   */
+  public static LockFile read(File file) {
+    try {
+      return MAPPER.readValue(file, LockFile.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot load the lock file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * A locked artifact.
+   */
+  public static class Entry {
+    private String groupId;
+    private String artifactId;
+    private String classifier = "";
+    private String extension = "jar";
+    private String version;
+    private String sha1;
+    private List<String> via = new ArrayList<>();
+    private Set<String> usages = new LinkedHashSet<>();
+
+    /**
+     * Creates an entry from a resolved artifact.
+     *
+     * @param artifact the artifact, its file must be set
+     * @param usages   the stack dependencies using the artifact
+     * @param sha1     the checksum of the artifact file
+     * @return the created entry
+     */
+    public static Entry of(org.eclipse.aether.artifact.Artifact artifact, Set<String> usages, String sha1) {
+      Entry entry = new Entry()
+        .setGroupId(artifact.getGroupId())
+        .setArtifactId(artifact.getArtifactId())
+        .setClassifier(artifact.getClassifier())
+        .setExtension(artifact.getExtension())
+        .setVersion(artifact.getVersion())
+        .setSha1(sha1);
+      entry.usages.addAll(usages);
+      // The provenance is stored from the stack dependency down to the direct parent.
+      if (artifact instanceof Artifact) {
+        for (Artifact parent = ((Artifact) artifact).getVia(); parent != null; parent = parent.getVia()) {
+          entry.via.add(0, parent.getCoordinates());
+        }
+      }
+      return entry;
+    }
+
+    /**
+     * Creates the {@link Artifact} denoted by this entry, including its provenance chain.
+     *
+     * @return the artifact
+     */
+    public Artifact toArtifact() {
+      Artifact parent = null;
+      for (String coordinates : via) {
+        parent = new Artifact(coordinates, parent);
+      }
+      if (classifier != null && !classifier.isEmpty()) {
+        return new Artifact(groupId, artifactId, classifier, extension, version, parent);
+      }
+      return new Artifact(groupId, artifactId, extension, version, parent);
+    }
+
+    /**
+     * @return the management key of the locked artifact.
+     */
+    @JsonIgnore
+    public String getManagementKey() {
+      return groupId + ":" + artifactId + ":" + extension
+        + (classifier != null && !classifier.isEmpty() ? ":" + classifier : "");
+    }
+
+    public String getGroupId() {
+      return groupId;
+    }
+
+    public Entry setGroupId(String groupId) {
+      this.groupId = groupId;
+      return this;
+    }
+
+    public String getArtifactId() {
+      return artifactId;
+    }
+
+    public Entry setArtifactId(String artifactId) {
+      this.artifactId = artifactId;
+      return this;
+    }
+
+    public String getClassifier() {
+      return classifier;
+    }
+
+    public Entry setClassifier(String classifier) {
+      this.classifier = classifier;
+      return this;
+    }
+
+    public String getExtension() {
+      return extension;
+    }
+
+    public Entry setExtension(String extension) {
+      this.extension = extension;
+      return this;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public Entry setVersion(String version) {
+      this.version = version;
+      return this;
+    }
+
+    public String getSha1() {
+      return sha1;
+    }
+
+    public Entry setSha1(String sha1) {
+      this.sha1 = sha1;
+      return this;
+    }
+
+    public List<String> getVia() {
+      return via;
+    }
+
+    public Entry setVia(List<String> via) {
+      this.via = via;
+      return this;
+    }
+
+    public Set<String> getUsages() {
+      return usages;
+    }
+
+    public Entry setUsages(Set<String> usages) {
+      this.usages = usages;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.model;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A resolution plan ({@code .vertx-stack-plan.json}), staged in the output directory by
+ * {@link StackResolution#fetch()} and executed by {@link StackResolution#apply()}. It lists the selected artifacts,
+ * with their checksum and their file in the local repository, so the output directory can be updated later from the
+ * local disk only, without resolving anything.
+ */
+public class ResolutionPlan {
+
+  /**
+   * The name of the plan file, in the output directory.
+   */
+  public static final String FILE_NAME = ".vertx-stack-plan.json";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private List<DependencyKey> stack = new ArrayList<>();
+  private List<LockFile.Entry> artifacts = new ArrayList<>();
+  private List<String> files = new ArrayList<>();
+  private List<ResolutionState.Entry> dependencies = new ArrayList<>();
+
+  /**
+   * @return the dependencies of the planned stack, with their resolution options, used to detect a modification of
+   * the stack between the two phases.
+   */
+  public List<DependencyKey> getStack() {
+    return stack;
+  }
+
+  public ResolutionPlan setStack(List<DependencyKey> stack) {
+    this.stack = stack;
+    return this;
+  }
+
+  /**
+   * @return the selected artifacts, with their usages and checksum.
+   */
+  public List<LockFile.Entry> getArtifacts() {
+    return artifacts;
+  }
+
+  public ResolutionPlan setArtifacts(List<LockFile.Entry> artifacts) {
+    this.artifacts = artifacts;
+    return this;
+  }
+
+  /**
+   * @return the files of the selected artifacts in the local repository, in the order of {@link #getArtifacts()}.
+   */
+  public List<String> getFiles() {
+    return files;
+  }
+
+  public ResolutionPlan setFiles(List<String> files) {
+    this.files = files;
+    return this;
+  }
+
+  /**
+   * @return the artifacts resolved for each dependency, persisted in the {@link ResolutionState} once applied.
+   */
+  public List<ResolutionState.Entry> getDependencies() {
+    return dependencies;
+  }
+
+  public ResolutionPlan setDependencies(List<ResolutionState.Entry> dependencies) {
+    this.dependencies = dependencies;
+    return this;
+  }
+
+  /**
+   * Adds a selected artifact to the plan.
+   *
+   * @param entry the artifact entry
+   * @param file  the file of the artifact in the local repository
+   * @return the current {@link ResolutionPlan} instance
+   */
+  public ResolutionPlan addArtifact(LockFile.Entry entry, File file) {
+    artifacts.add(entry);
+    files.add(file.getAbsolutePath());
+    return this;
+  }
+
+  /**
+   * Writes the plan in the given directory. The file is written atomically.
+   *
+   * @param directory the output directory
+   * @return the written file
+   */
+  public File write(File directory) {
+    Path file = new File(directory, FILE_NAME).toPath();
+    try {
+      Path temp = Files.createTempFile(directory.toPath(), FILE_NAME, ".tmp");
+      try {
+        MAPPER.writeValue(temp.toFile(), this);
+        try {
+          Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot write the resolution plan " + file, e);
+    }
+    return file.toFile();
+  }
+
+  /**
+   * Reads the plan staged in the given directory.
+   *
+   * @param directory the output directory
+   * @return the read plan
+   * @throws IllegalStateException if the directory has no plan, or if it cannot be read
+   */
+  public static ResolutionPlan read(File directory) {
+    File file = new File(directory, FILE_NAME);
+    if (!file.isFile()) {
+      throw new IllegalStateException("No resolution plan staged in " + directory.getAbsolutePath()
+        + " - the stack must be fetched first");
+    }
+    try {
+      return MAPPER.readValue(file, ResolutionPlan.class);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read the resolution plan " + file.getAbsolutePath(), e);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.stack.resolver.ResolutionOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of the last resolution of an output directory ({@code .vertx-stack-state.json}): the artifacts resolved
+ * for each dependency of the stack, with their files. The next resolution of the directory reuses the artifacts of
+ * the dependencies whose coordinates and resolution options did not change, without resolving them nor loading the
+ * resolver cache. The state is ignored when the cache is disabled.
+ */
+public class ResolutionState {
+
+  /**
+   * The name of the state file, in the output directory.
+   */
+  public static final String FILE_NAME = ".vertx-stack-state.json";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private List<Entry> dependencies = new ArrayList<>();
+
+  /**
+   * @return the resolved dependencies, empty if none.
+   */
+  public List<Entry> getDependencies() {
+    return dependencies;
+  }
+
+  /**
+   * Sets the resolved dependencies.
+   *
+   * @param dependencies the dependencies
+   * @return the current {@link ResolutionState} instance
+   */
+  public ResolutionState setDependencies(List<Entry> dependencies) {
+    this.dependencies = dependencies;
+    return this;
+  }
+
+  /**
+   * Writes the state in the given directory. The file is written atomically.
+   *
+   * @param directory the output directory
+   */
+  public void write(File directory) {
+    Path file = new File(directory, FILE_NAME).toPath();
+    try {
+      Path temp = Files.createTempFile(directory.toPath(), FILE_NAME, ".tmp");
+      try {
+        MAPPER.writeValue(temp.toFile(), this);
+        try {
+          Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot write the resolution state " + file, e);
+    }
+  }
+
+  /**
+   * Reads the state of the given directory.
+   *
+   * @param directory the output directory
+   * @return the read state, empty if the directory has no state or if it cannot be read
+   */
+  public static ResolutionState read(File directory) {
+    File file = new File(directory, FILE_NAME);
+    if (file.isFile()) {
+      try {
+        return MAPPER.readValue(file, ResolutionState.class);
+      } catch (IOException e) {
+        // The state is only an optimization, the stack is resolved again
+        return new ResolutionState();
+      }
+    }
+    return new ResolutionState();
+  }
+
+  /**
+   * The artifacts resolved for a dependency.
+   */
+  public static class Entry {
+    private String gacv;
+    private ResolutionOptions options;
+    private List<LockFile.Entry> artifacts = new ArrayList<>();
+    private List<String> files = new ArrayList<>();
+
+    /**
+     * Creates an entry.
+     *
+     * @param gacv      the GACV of the dependency
+     * @param options   the resolution options of the dependency
+     * @param artifacts the resolved artifacts, their file must be set
+     * @return the created entry
+     */
+    public static Entry of(String gacv, ResolutionOptions options, List<Artifact> artifacts) {
+      Entry entry = new Entry().setGacv(gacv).setOptions(options);
+      for (Artifact artifact : artifacts) {
+        entry.artifacts.add(LockFile.Entry.of(artifact, Collections.emptySet(), null));
+        entry.files.add(artifact.getFile().getAbsolutePath());
+      }
+      return entry;
+    }
+
+    /**
+     * @return the resolved artifacts, with their file and provenance.
+     */
+    public List<Artifact> toArtifacts() {
+      List<Artifact> list = new ArrayList<>();
+      for (int i = 0; i < artifacts.size(); i++) {
+        list.add(artifacts.get(i).toArtifact().setFile(new File(files.get(i))));
+      }
+      return list;
+    }
+
+    /**
+     * @return the key of the dependency.
+     */
+    @JsonIgnore
+    public DependencyKey getKey() {
+      return new DependencyKey().setGacv(gacv).setOptions(options);
+    }
+
+    public String getGacv() {
+      return gacv;
+    }
+
+    public Entry setGacv(String gacv) {
+      this.gacv = gacv;
+      return this;
+    }
+
+    public ResolutionOptions getOptions() {
+      return options;
+    }
+
+    public Entry setOptions(ResolutionOptions options) {
+      this.options = options;
+      return this;
+    }
+
+    public List<LockFile.Entry> getArtifacts() {
+      return artifacts;
+    }
+
+    public Entry setArtifacts(List<LockFile.Entry> artifacts) {
+      this.artifacts = artifacts;
+      return this;
+    }
+
+    public List<String> getFiles() {
+      return files;
+    }
+
+    public Entry setFiles(List<String> files) {
+      this.files = files;
+      return this;
+    }
+  }
+}
@@ -16,9 +16,11 @@
 
 package io.vertx.stack.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.vertx.stack.utils.Filtering;
+import io.vertx.stack.utils.Platform;
 
 import java.io.File;
 import java.io.IOException;
@@ -39,6 +41,10 @@ public class Stack {
 
   private Map<String, String> variables = new LinkedHashMap<>();
 
+  private boolean matchPlatform;
+
+  private Map<String, String> properties;
+
   /**
    * Adds a new variables or updates the value of an existing one.
    *
@@ -94,14 +100,64 @@ public class Stack {
   }
 
   /**
-   * Apply filtering on the set of dependencies.
+   * @return {@code true} if the platform specific artifacts not matching the current platform are not resolved.
+   */
+  public boolean isMatchPlatform() {
+    return matchPlatform;
+  }
+
+  /**
+   * Sets whether or not the dependencies of the stack only resolve the platform specific artifacts matching the
+   * current platform. It applies to all the dependencies, see {@link Dependency#setMatchPlatform(boolean)}.
+   *
+   * @param matchPlatform {@code true} to only resolve the artifacts of the current platform, {@code false} otherwise
+   *                      (default)
+   * @return the current {@link Stack} instance
+   */
+  public Stack setMatchPlatform(boolean matchPlatform) {
+    this.matchPlatform = matchPlatform;
+    return this;
+  }
+
+  /**
+   * @return the properties overriding the stack variables, {@code null} if the system properties are used.
+   */
+  @JsonIgnore
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Sets the properties overriding the stack variables during the filtering, instead of the system properties. It
+   * lets a process resolve a stack on behalf of another one, using the properties of the other process.
+   *
+   * @param properties the properties, {@code null} to use the system properties (default)
+   * @return the current {@link Stack} instance
+   */
+  @JsonIgnore
+  public Stack setProperties(Map<String, String> properties) {
+    this.properties = properties;
+    return this;
+  }
+
+  /**
+   * Apply filtering on the set of dependencies. In addition to the stack variables and the system properties, the
+   * {@code os.detected.name}, {@code os.detected.arch} and {@code os.detected.classifier} variables describe the
+   * current platform, so a dependency can use {@code ${os.detected.classifier}} as classifier.
    */
   public void applyFiltering() {
     // Compute the final set of properties.
-    // First the properties, Then the system properties, so you can override a value using -D.
+    // First the platform, then the properties, then the system properties, so you can override a value using -D.
     Map<String, String> properties = new LinkedHashMap<>();
+    properties.put(Platform.OS_NAME_VARIABLE, Platform.os());
+    properties.put(Platform.OS_ARCH_VARIABLE, Platform.arch());
+    properties.put(Platform.OS_CLASSIFIER_VARIABLE, Platform.classifier());
     properties.putAll(variables);
-    properties.putAll((Map) System.getProperties());
+    if (this.properties != null) {
+      properties.putAll(this.properties);
+    } else {
+      properties.putAll((Map) System.getProperties());
+    }
 
     dependencies.stream().forEach(dependency -> {
       dependency.setGroupId(Filtering.filter(dependency.getGroupId(), properties));
@@ -109,6 +165,9 @@ public class Stack {
       dependency.setVersion(Filtering.filter(dependency.getVersion(), properties));
       dependency.setClassifier(Filtering.filter(dependency.getClassifier(), properties));
       dependency.setType(Filtering.filter(dependency.getType(), properties));
+      if (matchPlatform) {
+        dependency.setMatchPlatform(true);
+      }
     });
   }
 
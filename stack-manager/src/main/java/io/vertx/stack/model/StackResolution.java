@@ -18,32 +18,66 @@ package io.vertx.stack.model;
 
 import io.vertx.core.internal.logging.Logger;
 import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.stack.launcher.PackageIndex;
+import io.vertx.stack.launcher.ServiceRegistry;
 import io.vertx.stack.resolver.Resolver;
 import io.vertx.stack.utils.Actions;
 import io.vertx.stack.utils.Cache;
+import io.vertx.stack.utils.Checksums;
+import io.vertx.stack.utils.ClassDataSharing;
+import io.vertx.stack.utils.ClasspathProfiler;
+import io.vertx.stack.utils.ClasspathScanner;
+import io.vertx.stack.utils.Home;
+import io.vertx.stack.utils.JarRepacker;
+import io.vertx.stack.utils.MergedArchive;
+import io.vertx.stack.utils.LauncherArgs;
+import io.vertx.stack.utils.NativeLibraries;
 import org.eclipse.aether.artifact.Artifact;
 
 import java.io.File;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * Object responsible for resolving a stack. This object is stateful, and must be used only for a single resolution.
+ * Object responsible for resolving a stack. This object is stateful: it can be updated with a new version of the stack
+ * (see {@link #update(Stack)}), reusing the resolver, the cache and the resolution of the unchanged dependencies.
+ * <p>
+ * The selected artifacts are also published as a stream: a {@link Flow.Subscriber} registered before a resolution
+ * receives each selected artifact as soon as its version is final (the first selected version of an artifact is
+ * never replaced), and is completed when the resolution ends, or receives the error if it fails. Subscribers only
+ * receive the events of the next resolution. The usages of an artifact may still grow after it has been published.
+ * When the resolution fails, the artifacts published before the failure are delivered before the error.
+ * This stream is used to copy the new artifacts into the output directory while the remaining dependencies are
+ * resolved.
+ * <p>
+ * The resolution can also be split in two phases: {@link #fetch()} resolves and downloads the artifacts, and stages
+ * a {@link ResolutionPlan} in the output directory, and {@link #apply()} later updates the output directory from the
+ * local repository only.
  *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
-public class StackResolution {
+public class StackResolution implements Flow.Publisher<StackResolution.ResolvedArtifact> {
 
   private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolution");
 
   private final File directory;
-  private final Stack stack;
+  private Stack stack;
 
   private final Map<String, String> selectedVersions = new LinkedHashMap<>();
   private final Map<String, ResolvedArtifact> selectedArtifacts = new LinkedHashMap<>();
 
+  private final List<Flow.Subscriber<? super ResolvedArtifact>> subscribers = new ArrayList<>();
+  private SubmissionPublisher<ResolvedArtifact> publisher;
+  private final Set<String> published = new HashSet<>();
+
   /**
    * Map keeping a trace from who has resolved which version. It imrpvoes the reporting when a conflict has been
    * detected.
@@ -53,7 +87,20 @@ public class StackResolution {
   private final StackResolutionOptions options;
   private Resolver resolver;
 
-  private final Cache cache;
+  private Cache cache;
+
+  /**
+   * The artifacts resolved for each dependency by the previous resolutions. Dependencies with snapshots are not kept,
+   * their revalidation is managed by the cache. The artifacts are also persisted in the output directory (see
+   * {@link ResolutionState}) and reloaded by the first resolution. They are not reused when the cache is disabled.
+   */
+  private final Map<DependencyKey, List<io.vertx.stack.model.Artifact>> resolutions = new HashMap<>();
+  private boolean stateLoaded;
+
+  /**
+   * The checksums of the selected artifacts, by management key, computed lazily.
+   */
+  private Map<String, String> checksums;
 
   /**
    * Creates an instance of {@link StackResolution}.
@@ -69,7 +116,32 @@ public class StackResolution {
     this.stack = stack;
     this.options = options;
     this.directory = directory;
-    this.cache = new Cache(options.isCacheDisabled(), options.isCacheDisabledForSnapshots(), options.getCacheFile());
+    if (options.isCachePruned()) {
+      cache().compact();
+      cache().writeCacheOnFile();
+    }
+  }
+
+  /**
+   * Gets the cache, loaded on first use: a resolution whose dependencies have not changed does not read it.
+   */
+  private Cache cache() {
+    if (cache == null) {
+      cache = new Cache(options.isCacheDisabled(), options.isCacheDisabledForSnapshots(), options.getCacheFile())
+        .setSnapshotTtl(options.getCacheSnapshotTtl())
+        .setMaxEntries(options.getCacheMaxEntries());
+    }
+    return cache;
+  }
+
+  /**
+   * Gets the resolver, created on first use: a resolution whose dependencies have not changed does not need it.
+   */
+  private Resolver resolver() {
+    if (resolver == null) {
+      resolver = Resolver.create(options);
+    }
+    return resolver;
   }
 
   /**
@@ -78,29 +150,180 @@ public class StackResolution {
    * @return the map artifact's management key - file composing the stack
    */
   public Map<String, File> resolve() {
+    return resolve(gav -> true);
+  }
+
+  /**
+   * Resolves a new version of the stack, for instance after a modification of its descriptor. Only the dependencies
+   * whose filtered coordinates or resolution options have changed are resolved again, and the output directory is
+   * updated with the difference.
+   *
+   * @param stack the new version of the stack
+   * @return the map artifact's management key - file composing the stack
+   */
+  public Map<String, File> update(Stack stack) {
+    this.stack = Objects.requireNonNull(stack);
+    return resolve();
+  }
+
+  /**
+   * Registers a subscriber receiving the artifacts selected by the next resolution.
+   *
+   * @param subscriber the subscriber
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super ResolvedArtifact> subscriber) {
+    synchronized (subscribers) {
+      subscribers.add(Objects.requireNonNull(subscriber));
+    }
+  }
+
+  public Map<String, File> resolve(Predicate<String> validator) {
     traces.clear();
     selectedVersions.clear();
+    selectedArtifacts.clear();
+    published.clear();
+    checksums = null;
     init();
-    stack.getDependencies().forEach(this::resolve);
-    List<Actions.Action> chain = computeChainOfActions();
 
-    chain.forEach(Actions.Action::execute);
+    publisher = new SubmissionPublisher<>();
+    List<TrackedSubscriber> tracked = new ArrayList<>();
+    synchronized (subscribers) {
+      subscribers.forEach(subscriber -> tracked.add(new TrackedSubscriber(subscriber)));
+      subscribers.clear();
+    }
+    EarlyCopier copier = new EarlyCopier();
+    if (!options.isMerged() && !options.isJarsStored()) {
+      tracked.add(new TrackedSubscriber(copier));
+    } else {
+      copier.done.complete(null);
+    }
+    tracked.forEach(publisher::subscribe);
+    try {
+      if (options.isLocked()) {
+        resolveFromLockFile();
+      } else if (options.isFailOnConflicts()) {
+        resolveCollectingFirst();
+      } else {
+        stack.getDependencies().forEach(dependency -> {
+          resolve(dependency);
+          publishSelected();
+        });
+      }
+      publishSelected();
+      publisher.close();
+      copier.done.join();
+    } catch (RuntimeException e) {
+      RuntimeException failure = e instanceof CompletionException && e.getCause() instanceof RuntimeException
+        ? (RuntimeException) e.getCause() : e;
+      // closeExceptionally may signal the error before the pending artifacts, so they are delivered first
+      tracked.forEach(subscriber -> subscriber.await(published.size()));
+      publisher.closeExceptionally(failure);
+      copier.done.exceptionally(t -> null).join();
+      // The resolution failed, the output directory is left unchanged
+      copier.copied.forEach(file -> Actions.remove(file).execute());
+      throw failure;
+    }
+    if (!copier.copied.isEmpty()) {
+      LOGGER.info(copier.copied.size() + " artifacts copied during the resolution");
+    }
+    return materialize(validator);
+  }
 
-    Map<String, File> resolved = new LinkedHashMap<>();
-    for (ResolvedArtifact artifact : selectedArtifacts.values()) {
-      Path source = artifact.artifact.getFile().toPath();
-      Path output = directory.toPath().resolve(source.getFileName());
-      resolved.put(artifact.artifact.toString(), output.toFile());
+  /**
+   * First phase of a two-phase resolution: resolves the stack and downloads the selected artifacts into the local
+   * repository, then stages a {@link ResolutionPlan} in the output directory. The artifacts of the output directory
+   * are not modified. When the jars are stored without compression, they are also repacked into the repack cache.
+   *
+   * @return the plan file
+   */
+  public File fetch() {
+    traces.clear();
+    selectedVersions.clear();
+    selectedArtifacts.clear();
+    checksums = null;
+    init();
+    if (options.isLocked()) {
+      resolveFromLockFile();
+    } else if (options.isFailOnConflicts()) {
+      resolveCollectingFirst();
+    } else {
+      stack.getDependencies().forEach(this::resolve);
     }
+    sources();
 
-    return resolved;
+    ResolutionPlan plan = new ResolutionPlan().setStack(dependencyKeys());
+    selectedArtifacts.forEach((key, resolved) -> plan.addArtifact(
+      LockFile.Entry.of(resolved.getArtifact(), resolved.getUsages(), checksums().get(key)),
+      resolved.getArtifact().getFile()));
+    if (!options.isLocked()) {
+      plan.setDependencies(stateEntries());
+    }
+    File file = plan.write(directory);
+    LOGGER.info("Resolution plan of " + selectedArtifacts.size() + " artifacts staged in " + file.getAbsolutePath());
+    return file;
   }
 
-  public Map<String, File> resolve(Predicate<String> validator) {
+  /**
+   * Second phase of a two-phase resolution: updates the output directory from the {@link ResolutionPlan} staged by
+   * {@link #fetch()}. The artifacts are taken from the local repository, nothing is resolved nor downloaded. The plan
+   * is removed once applied.
+   *
+   * @return the map artifact's management key - file composing the stack
+   * @throws IllegalStateException if no plan is staged, if the stack has been modified since the plan was fetched, or
+   *                               if a planned artifact has been modified or removed from the local repository
+   */
+  public Map<String, File> apply() {
+    ResolutionPlan plan = ResolutionPlan.read(directory);
     traces.clear();
     selectedVersions.clear();
+    selectedArtifacts.clear();
+    checksums = new HashMap<>();
     init();
-    stack.getDependencies().forEach(this::resolve);
+    if (!dependencyKeys().equals(plan.getStack())) {
+      throw new IllegalStateException("The stack has been modified since the resolution plan was fetched");
+    }
+
+    List<LockFile.Entry> entries = plan.getArtifacts();
+    List<File> files = plan.getFiles().stream().map(File::new).collect(Collectors.toList());
+    List<String> mismatches = IntStream.range(0, entries.size()).parallel()
+      .filter(i -> !files.get(i).isFile()
+        || entries.get(i).getSha1() != null && !entries.get(i).getSha1().equalsIgnoreCase(Checksums.sha1(files.get(i))))
+      .mapToObj(i -> files.get(i).getAbsolutePath())
+      .collect(Collectors.toList());
+    if (!mismatches.isEmpty()) {
+      throw new IllegalStateException("The planned artifacts have been modified or removed since the resolution "
+        + "plan was fetched " + mismatches);
+    }
+
+    LOGGER.info("Applying the resolution plan of " + entries.size() + " artifacts");
+    for (int i = 0; i < entries.size(); i++) {
+      LockFile.Entry entry = entries.get(i);
+      io.vertx.stack.model.Artifact artifact = entry.toArtifact().setFile(files.get(i));
+      selectedVersions.put(entry.getManagementKey(), artifact.getBaseVersion());
+      ResolvedArtifact resolved = new ResolvedArtifact().setArtifact(artifact)
+        .setSelectedVersion(artifact.getBaseVersion());
+      entry.getUsages().forEach(resolved::addUsage);
+      selectedArtifacts.put(entry.getManagementKey(), resolved);
+      checksums.put(entry.getManagementKey(), entry.getSha1());
+    }
+    for (ResolutionState.Entry entry : plan.getDependencies()) {
+      resolutions.put(entry.getKey(), entry.toArtifacts());
+    }
+
+    Map<String, File> resolved = materialize(gav -> true);
+    Actions.remove(new File(directory, ResolutionPlan.FILE_NAME)).execute();
+    return resolved;
+  }
+
+  /**
+   * Updates the output directory with the selected artifacts, then writes the lock file, the state and the launcher
+   * files.
+   *
+   * @param validator the predicate validating the GAV of the selected artifacts
+   * @return the map artifact's management key - file composing the stack
+   */
+  private Map<String, File> materialize(Predicate<String> validator) {
     List<Actions.Action> chain = computeChainOfActions();
 
     chain.forEach(Actions.Action::execute);
@@ -113,12 +336,184 @@ public class StackResolution {
       }
       Path source = artifact.artifact.getFile().toPath();
       Path output = directory.toPath().resolve(source.getFileName());
-      resolved.put(gav, output.toFile());
+      resolved.put(gav, isMerged(artifact.artifact) ? source.toFile() : output.toFile());
+    }
+
+    if (!options.isLocked() && options.getLockFile() != null) {
+      writeLockFile(options.getLockFile());
+    }
+    if (!options.isLocked()) {
+      writeState();
+    }
+
+    List<File> files = new ArrayList<>(resolved.values());
+    if (options.isMerged()) {
+      files.removeIf(file -> file.getName().endsWith(".jar"));
+      files.add(new File(directory, MergedArchive.FILE_NAME));
     }
+    LauncherArgs args = LauncherArgs.load(directory);
+    extractNativeLibraries(files, args);
+    List<File> classpath = orderClasspath(classpath(files), args);
+    writePackageIndex(classpath);
+    writeServiceRegistry(classpath);
+    scanClasspath(classpath);
+    generateClassDataSharingArchive(classpath, args);
+    args.write();
 
     return resolved;
   }
 
+  /**
+   * Extracts the native libraries of the current platform from the resolved artifacts, and updates the launcher
+   * arguments so the JVM loads them from the extraction directory.
+   *
+   * @param files the files of the resolved artifacts, in the output directory
+   * @param args  the launcher arguments
+   */
+  private void extractNativeLibraries(Collection<File> files, LauncherArgs args) {
+    List<File> libraries = options.isNativeLibrariesExtracted()
+      ? NativeLibraries.extract(files, directory) : Collections.emptyList();
+    if (libraries.isEmpty()) {
+      args.remove("-Djava.library.path").remove("-Dio.netty.native.workdir");
+    } else {
+      String path = NativeLibraries.directory(directory).getAbsolutePath();
+      // The work directory is only used if Netty still needs to extract a library.
+      args.set("-Djava.library.path=" + path).set("-Dio.netty.native.workdir=" + path);
+    }
+  }
+
+  /**
+   * Computes the class path of the output directory: the resolved jars, in selection order, followed by the stack
+   * manager jars kept in the directory (see {@link #computeChainOfActions()}).
+   *
+   * @param files the files of the resolved artifacts, in the output directory
+   * @return the class path
+   */
+  private List<File> classpath(Collection<File> files) {
+    List<File> classpath = new ArrayList<>();
+    files.stream().filter(file -> file.getName().endsWith(".jar")).forEach(classpath::add);
+    File[] managers = directory.listFiles((dir, name) -> name.startsWith("vertx-stack-manager-")
+      && name.endsWith(".jar"));
+    if (managers != null) {
+      Arrays.stream(managers).sorted().filter(file -> !classpath.contains(file)).forEach(classpath::add);
+    }
+    return classpath;
+  }
+
+  /**
+   * Writes the index mapping the packages to the jars of the class path, or deletes it when disabled.
+   *
+   * @param classpath the class path
+   */
+  private void writePackageIndex(List<File> classpath) {
+    if (options.isPackageIndexed()) {
+      File file = PackageIndex.build(classpath).write(directory);
+      LOGGER.info("Package index written to " + file.getAbsolutePath());
+    } else {
+      Actions.remove(new File(directory, PackageIndex.FILE_NAME)).execute();
+    }
+  }
+
+  /**
+   * Writes the registry merging the service providers declared by the jars of the class path, or deletes it when
+   * disabled. The providers declared by several jars are reported.
+   *
+   * @param classpath the class path
+   */
+  private void writeServiceRegistry(List<File> classpath) {
+    if (options.isServiceRegistry()) {
+      File file = ServiceRegistry.build(classpath).write(directory);
+      LOGGER.info("Service registry written to " + file.getAbsolutePath());
+    } else {
+      Actions.remove(new File(directory, ServiceRegistry.FILE_NAME)).execute();
+    }
+  }
+
+  /**
+   * Reports the duplicate classes and the split packages of the class path. When the resolution fails on conflicts,
+   * duplicate classes fail the resolution.
+   *
+   * @param classpath the class path
+   */
+  private void scanClasspath(List<File> classpath) {
+    if (!options.isClasspathScanned()) {
+      Actions.remove(new File(directory, ClasspathScanner.CACHE_NAME)).execute();
+      return;
+    }
+    ClasspathScanner.Report report = ClasspathScanner.scan(classpath, outputChecksums(), directory);
+    List<String> problems = report.describe();
+    if (!report.getDuplicateClasses().isEmpty() && options.isFailOnConflicts()) {
+      throw new IllegalStateException("Duplicate classes detected in " + directory.getAbsolutePath() + ":\n\t"
+        + String.join("\n\t", problems));
+    }
+    problems.forEach(LOGGER::warn);
+  }
+
+  /**
+   * Generates the Class Data Sharing archive of the class path, unless it is up to date. The launcher arguments are
+   * updated to use the archive and the class path it has been generated for.
+   *
+   * @param classpath the class path
+   * @param args      the launcher arguments
+   */
+  private void generateClassDataSharingArchive(List<File> classpath, LauncherArgs args) {
+    if (!options.isClassDataSharing()) {
+      ClassDataSharing.clean(directory, args);
+      return;
+    }
+    ClassDataSharing.generate(directory, classpath, outputChecksums(), options.getTrainingCommand(), args);
+  }
+
+  /**
+   * Orders the class path according to the classes loaded by a training run, when enabled. The launcher arguments
+   * set the class path when it is ordered or when a Class Data Sharing archive is generated, as the archive is bound
+   * to the class path order.
+   *
+   * @param classpath the class path, in resolution order
+   * @param args      the launcher arguments
+   * @return the class path
+   */
+  private List<File> orderClasspath(List<File> classpath, LauncherArgs args) {
+    if (options.isClasspathProfiled()) {
+      // The options bound to the previous class path must not be used by the training run
+      List<String> jvmOptions = args.getOptions().stream()
+        .filter(option -> !option.startsWith("--class-path=") && !option.startsWith("-XX:SharedArchiveFile=")
+          && !option.startsWith("-XX:AOTCache="))
+        .collect(Collectors.toList());
+      classpath = ClasspathProfiler.order(directory, classpath, outputChecksums(), options.getTrainingCommand(),
+        options.getClasspathProfileSize(), jvmOptions);
+    } else {
+      Actions.remove(new File(directory, ClasspathProfiler.PROFILE_NAME)).execute();
+      Actions.remove(new File(directory, ClasspathProfiler.LOG_NAME)).execute();
+    }
+    if (options.isClasspathProfiled() || options.isClassDataSharing()) {
+      args.set("--class-path=" + classpath.stream().map(File::getAbsolutePath)
+        .collect(Collectors.joining(File.pathSeparator)));
+    } else {
+      args.remove("--class-path");
+    }
+    return classpath;
+  }
+
+  /**
+   * Gets the checksums of the selected artifacts copied into the output directory. The copies have the same content
+   * as the artifacts, so their checksums are reused. Jars repacked without compression are identified by the
+   * checksum of the original jar with a {@code -stored} suffix, as repacking is deterministic.
+   *
+   * @return a mutable map of the checksums, by file of the output directory
+   */
+  private Map<File, String> outputChecksums() {
+    Map<File, String> sha1s = new HashMap<>();
+    checksums().forEach((key, sha1) -> {
+      if (isMerged(selectedArtifacts.get(key).getArtifact())) {
+        return;
+      }
+      String name = selectedArtifacts.get(key).getArtifact().getFile().getName();
+      sha1s.put(new File(directory, name), options.isJarsStored() && name.endsWith(".jar") ? sha1 + "-stored" : sha1);
+    });
+    return sha1s;
+  }
+
   private void init() {
     if (!directory.isDirectory()) {
       LOGGER.info("Creating directory " + directory.getAbsolutePath());
@@ -128,7 +523,190 @@ public class StackResolution {
     stack.applyFiltering();
     stack.getDependencies().filter(Dependency::isIncluded).forEach(
       dependency -> selectedVersions.put(dependency.getManagementKey(), dependency.getVersion()));
-    resolver = Resolver.create(options);
+    Set<DependencyKey> keys = new HashSet<>(dependencyKeys());
+    if (!stateLoaded && !options.isLocked() && !options.isCacheDisabled()) {
+      stateLoaded = true;
+      loadState(keys);
+    }
+    resolutions.keySet().retainAll(keys);
+  }
+
+  /**
+   * Loads the artifacts resolved for the dependencies of the stack by the last resolution of the output directory.
+   * The dependencies whose files have been removed from the local repository are resolved again.
+   *
+   * @param keys the keys of the dependencies of the stack
+   */
+  private void loadState(Set<DependencyKey> keys) {
+    for (ResolutionState.Entry entry : ResolutionState.read(directory).getDependencies()) {
+      DependencyKey key = entry.getKey();
+      if (keys.contains(key)) {
+        List<io.vertx.stack.model.Artifact> list = entry.toArtifacts();
+        if (!list.isEmpty() && list.stream().allMatch(artifact -> artifact.getFile().isFile())) {
+          resolutions.put(key, list);
+        }
+      }
+    }
+  }
+
+  /**
+   * Persists the artifacts resolved for each dependency of the stack in the output directory.
+   */
+  private void writeState() {
+    new ResolutionState().setDependencies(stateEntries()).write(directory);
+  }
+
+  private List<ResolutionState.Entry> stateEntries() {
+    List<ResolutionState.Entry> entries = new ArrayList<>();
+    stack.getDependencies().filter(Dependency::isIncluded).forEach(dependency -> {
+      List<io.vertx.stack.model.Artifact> list = resolutions.get(DependencyKey.of(dependency));
+      if (list != null) {
+        entries.add(ResolutionState.Entry.of(dependency.getGACV(), dependency.getResolutionOptions(), list));
+      }
+    });
+    return entries;
+  }
+
+  /**
+   * Gets the artifacts of a dependency from the previous resolutions or from the cache.
+   *
+   * @return the artifacts, {@code null} if they need to be resolved
+   */
+  private List<io.vertx.stack.model.Artifact> lookup(Dependency dependency) {
+    List<io.vertx.stack.model.Artifact> list = options.isCacheDisabled() ? null
+      : resolutions.get(DependencyKey.of(dependency));
+    if (list != null) {
+      LOGGER.debug("Dependency " + dependency + " unchanged");
+      return list;
+    }
+    list = cache().get(dependency.getGACV(), dependency.getResolutionOptions(), this::isUpToDate);
+    if (list == null || list.isEmpty()) {
+      return null;
+    }
+    LOGGER.info("Dependency " + dependency + " loaded from cache");
+    remember(dependency, list);
+    return list;
+  }
+
+  private void remember(Dependency dependency, List<io.vertx.stack.model.Artifact> list) {
+    if (list.stream().noneMatch(io.vertx.stack.model.Artifact::isSnapshot)) {
+      resolutions.put(DependencyKey.of(dependency), list);
+    }
+  }
+
+  /**
+   * Fills the selected artifacts from the lock file. No dependency graph is collected, the locked artifacts are
+   * fetched (or found in the local repository) and their checksums verified.
+   */
+  private void resolveFromLockFile() {
+    File file = options.getLockFile();
+    if (file == null || !file.isFile()) {
+      throw new IllegalArgumentException("Cannot resolve the stack in locked mode - the lock file "
+        + (file == null ? "is not set" : file.getAbsolutePath() + " does not exist"));
+    }
+    LOGGER.info("Resolving the stack from the lock file " + file.getAbsolutePath());
+    LockFile lock = LockFile.read(file);
+    if (!lock.getStack().equals(dependencyKeys())) {
+      throw new IllegalStateException("Cannot resolve the stack in locked mode - the stack has been modified since "
+        + "the lock file " + file.getAbsolutePath() + " was written");
+    }
+    List<LockFile.Entry> entries = lock.getArtifacts();
+    List<io.vertx.stack.model.Artifact> artifacts = resolver().resolveArtifacts(
+      entries.stream().map(LockFile.Entry::toArtifact).collect(Collectors.toList()));
+
+    List<String> mismatches = IntStream.range(0, entries.size()).parallel()
+      .filter(i -> entries.get(i).getSha1() != null
+        && !entries.get(i).getSha1().equalsIgnoreCase(Checksums.sha1(artifacts.get(i).getFile())))
+      .mapToObj(i -> artifacts.get(i).toString())
+      .collect(Collectors.toList());
+    if (!mismatches.isEmpty()) {
+      throw new IllegalStateException("Checksum mismatch for the locked artifacts " + mismatches);
+    }
+
+    for (int i = 0; i < entries.size(); i++) {
+      LockFile.Entry entry = entries.get(i);
+      io.vertx.stack.model.Artifact artifact = artifacts.get(i);
+      selectedVersions.put(entry.getManagementKey(), artifact.getBaseVersion());
+      ResolvedArtifact resolved = new ResolvedArtifact().setArtifact(artifact)
+        .setSelectedVersion(artifact.getBaseVersion());
+      entry.getUsages().forEach(resolved::addUsage);
+      selectedArtifacts.put(entry.getManagementKey(), resolved);
+    }
+  }
+
+  private void writeLockFile(File file) {
+    LockFile lock = new LockFile().setStack(dependencyKeys());
+    Map<String, String> checksums = checksums();
+    selectedArtifacts.forEach((key, resolved) -> lock.addArtifact(
+      LockFile.Entry.of(resolved.getArtifact(), resolved.getUsages(), checksums.get(key))));
+    if (lock.write(file)) {
+      LOGGER.info("Lock file written to " + file.getAbsolutePath());
+    }
+  }
+
+  /**
+   * @return the keys of the included dependencies of the stack, in declaration order.
+   */
+  private List<DependencyKey> dependencyKeys() {
+    return stack.getDependencies().filter(Dependency::isIncluded).map(DependencyKey::of)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Gets the checksums of the selected artifacts, computing them in parallel on the first call.
+   *
+   * @return the checksums, by management key
+   */
+  private Map<String, String> checksums() {
+    if (checksums == null) {
+      List<String> keys = new ArrayList<>(selectedArtifacts.keySet());
+      List<String> sha1s = keys.parallelStream()
+        .map(key -> Checksums.sha1(selectedArtifacts.get(key).getArtifact().getFile()))
+        .collect(Collectors.toList());
+      checksums = new HashMap<>();
+      for (int i = 0; i < keys.size(); i++) {
+        checksums.put(keys.get(i), sha1s.get(i));
+      }
+    }
+    return checksums;
+  }
+
+  /**
+   * Gets the files to copy into the output directory for the selected artifacts. When the jars are stored without
+   * compression, the repacked jars are taken from the repack cache, and repacked in parallel if not cached yet.
+   *
+   * @return the artifacts to copy, with their file set, by management key
+   */
+  private Map<String, Artifact> sources() {
+    Map<String, Artifact> sources = new LinkedHashMap<>();
+    selectedArtifacts.forEach((key, resolved) -> sources.put(key, resolved.getArtifact()));
+    if (!options.isJarsStored() || options.isMerged()) {
+      return sources;
+    }
+    File cacheDirectory = options.getStoredJarsCache() != null ? options.getStoredJarsCache()
+      : Home.getVertxHome() != null ? new File(Home.getVertxHome(), ".stack-manager-stored")
+      : new File(directory, ".stored-jars");
+    Map<String, String> checksums = checksums();
+    List<String> jars = sources.keySet().stream()
+      .filter(key -> sources.get(key).getFile().getName().endsWith(".jar"))
+      .collect(Collectors.toList());
+    List<File> stored = jars.parallelStream()
+      .map(key -> JarRepacker.stored(sources.get(key).getFile(), checksums.get(key), cacheDirectory))
+      .collect(Collectors.toList());
+    for (int i = 0; i < jars.size(); i++) {
+      sources.put(jars.get(i), sources.get(jars.get(i)).setFile(stored.get(i)));
+    }
+    return sources;
+  }
+
+  /**
+   * Checks whether the given artifact is merged into the merged archive instead of being copied.
+   *
+   * @param artifact the artifact
+   * @return {@code true} if the merged output mode is enabled and the artifact is a jar
+   */
+  private boolean isMerged(Artifact artifact) {
+    return options.isMerged() && artifact.getFile().getName().endsWith(".jar");
   }
 
   private List<Actions.Action> computeChainOfActions() {
@@ -142,19 +720,42 @@ public class StackResolution {
       marks.put(file.getName(), false);
     }
 
+    // Only the modified files are part of the chain
     List<Actions.Action> chain = new ArrayList<>();
+    int[] unchanged = {0};
 
+    Map<String, Artifact> sources = sources();
+    List<File> merged = new ArrayList<>();
+    Map<File, String> mergedChecksums = new HashMap<>();
     selectedArtifacts.forEach((key, artifact) -> {
-      String fileName = artifact.getArtifact().getFile().getName();
+      if (isMerged(artifact.getArtifact())) {
+        merged.add(artifact.getArtifact().getFile());
+        mergedChecksums.put(artifact.getArtifact().getFile(), checksums().get(key));
+        return;
+      }
+      Artifact source = sources.get(key);
+      String fileName = source.getFile().getName();
+      // Mark the file.
+      marks.put(fileName, true);
 
-      if (marks.containsKey(fileName)) {
-        // Mark the file.
-        marks.put(fileName, true);
-        chain.add(Actions.skip(artifact.getArtifact()));
+      File output = new File(directory, fileName);
+      if (output.isFile() && output.length() == source.getFile().length()) {
+        unchanged[0]++;
       } else {
-        chain.add(Actions.copy(artifact.getArtifact(), directory));
+        // Missing, or same name with a different content: a rebuilt snapshot, or a jar stored with another
+        // compression
+        chain.add(Actions.copy(source, directory));
       }
     });
+    if (unchanged[0] > 0) {
+      LOGGER.info(unchanged[0] + " artifacts unchanged");
+    }
+
+    if (options.isMerged()) {
+      marks.put(MergedArchive.FILE_NAME, true);
+      chain.add(Actions.merge(merged, mergedChecksums, new File(directory, MergedArchive.FILE_NAME),
+        options.isJarsStored()));
+    }
 
     // Schedule the deletion of all non-marked file.
     marks.forEach((fileName, mark) -> {
@@ -169,20 +770,83 @@ public class StackResolution {
   private void resolve(Dependency dependency) {
     List<io.vertx.stack.model.Artifact> list;
     if (dependency.isIncluded()) {
-      list = cache.get(dependency.getGACV(), dependency.getResolutionOptions());
-      // artifacts = cache.get(dependency.getGACV(), dependency.getResolutionOptions());
-      if (list == null || list.isEmpty()) {
-        // list = resolver.resolve(dependency.getGACV(), dependency.getResolutionOptions());
-        list = resolver.resolve(dependency.getGACV(), dependency.getResolutionOptions());
-        cache.put(dependency.getGACV(), dependency.getResolutionOptions(), list);
-        cache.writeCacheOnFile();
-      } else {
-        LOGGER.info("Dependency " + dependency + " loaded from cache");
+      list = lookup(dependency);
+      if (list == null) {
+        list = resolver().resolve(dependency.getGACV(), dependency.getResolutionOptions());
+        cache().put(dependency.getGACV(), dependency.getResolutionOptions(), list);
+        cache().writeCacheOnFile();
+        remember(dependency, list);
       }
     } else {
       return;
     }
 
+    // Conflicts are only reported when the resolution fails on conflicts, which collects the graphs first
+    select(dependency, list, new ArrayList<>());
+  }
+
+  /**
+   * Resolves the stack in three phases: the dependency graphs are collected (only the POM files are fetched), then
+   * all the conflicts are detected, and finally the selected artifacts are downloaded. A conflicting stack therefore
+   * fails without downloading any artifact, and reports all its conflicts at once.
+   */
+  private void resolveCollectingFirst() {
+    Map<Dependency, List<io.vertx.stack.model.Artifact>> collected = new LinkedHashMap<>();
+    Set<Dependency> toDownload = new LinkedHashSet<>();
+    stack.getDependencies().filter(Dependency::isIncluded).forEach(dependency -> {
+      List<io.vertx.stack.model.Artifact> list = lookup(dependency);
+      if (list == null) {
+        list = resolver().collect(dependency.getGACV(), dependency.getResolutionOptions());
+        toDownload.add(dependency);
+      }
+      collected.put(dependency, list);
+    });
+
+    List<DependencyConflictException> conflicts = new ArrayList<>();
+    collected.forEach((dependency, list) -> select(dependency, list, conflicts));
+    if (conflicts.size() == 1) {
+      throw conflicts.get(0);
+    } else if (!conflicts.isEmpty()) {
+      throw new DependencyConflictException(conflicts);
+    }
+
+    if (toDownload.isEmpty()) {
+      return;
+    }
+    // There is no conflict, so all the collected artifacts are selected. Download them in a single batch.
+    Map<String, io.vertx.stack.model.Artifact> artifacts = new LinkedHashMap<>();
+    toDownload.forEach(dependency -> collected.get(dependency)
+      .forEach(artifact -> artifacts.putIfAbsent(artifact.toString(), artifact)));
+    List<String> keys = new ArrayList<>(artifacts.keySet());
+    List<io.vertx.stack.model.Artifact> downloaded = resolver().resolveArtifacts(new ArrayList<>(artifacts.values()));
+    Map<String, File> files = new HashMap<>();
+    for (int i = 0; i < keys.size(); i++) {
+      files.put(keys.get(i), downloaded.get(i).getFile());
+    }
+    for (Dependency dependency : toDownload) {
+      List<io.vertx.stack.model.Artifact> list = collected.get(dependency).stream()
+        .map(artifact -> artifact.setFile(files.get(artifact.toString())))
+        .collect(Collectors.toList());
+      cache().put(dependency.getGACV(), dependency.getResolutionOptions(), list);
+      remember(dependency, list);
+    }
+    cache().writeCacheOnFile();
+    for (ResolvedArtifact resolved : selectedArtifacts.values()) {
+      if (resolved.getArtifact().getFile() == null) {
+        resolved.setArtifact(resolved.getArtifact().setFile(files.get(resolved.getArtifact().toString())));
+      }
+    }
+  }
+
+  /**
+   * Selects the artifacts resolved for a dependency.
+   *
+   * @param dependency the dependency
+   * @param list       the artifacts of the dependency
+   * @param conflicts  the list receiving the detected conflicts, only filled when the resolution fails on conflicts
+   */
+  private void select(Dependency dependency, List<io.vertx.stack.model.Artifact> list,
+                      List<DependencyConflictException> conflicts) {
     if (list == null || list.isEmpty()) {
       throw new IllegalArgumentException("Cannot resolve " + dependency);
     }
@@ -199,13 +863,40 @@ public class StackResolution {
       } else {
         List<String> trace = traces.get(gaec + ":" + version);
         if (options.isFailOnConflicts()) {
-          throw new DependencyConflictException(gaec, version, trace, dependency.getGACV(), artifact);
+          conflicts.add(new DependencyConflictException(gaec, version, trace, dependency.getGACV(), artifact));
+          return;
         }
       }
       addSelectedArtifact(dependency, artifact, version);
     });
   }
 
+  /**
+   * Checks whether the snapshots of an expired cache entry are still the latest builds. Only the repository
+   * metadata is fetched.
+   *
+   * @param artifacts the cached artifacts
+   * @return {@code true} if none of the snapshots has changed, {@code false} otherwise
+   */
+  private boolean isUpToDate(List<io.vertx.stack.model.Artifact> artifacts) {
+    for (io.vertx.stack.model.Artifact artifact : artifacts) {
+      if (!artifact.isSnapshot()) {
+        continue;
+      }
+      try {
+        String latest = resolver().resolveVersion(artifact);
+        if (!artifact.getVersion().equals(latest)) {
+          LOGGER.info("Snapshot " + artifact + " has changed, latest build is " + latest);
+          return false;
+        }
+      } catch (IllegalArgumentException e) {
+        LOGGER.debug("Cannot check the version of " + artifact + ": " + e.getMessage());
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Keep a trace of the resolution.
    *
@@ -242,6 +933,131 @@ public class StackResolution {
     return dependency.getManagementKey();
   }
 
+  /**
+   * Publishes the selected artifacts that have not been published yet, in selection order. The files of the artifacts
+   * must be set.
+   */
+  private void publishSelected() {
+    for (Map.Entry<String, ResolvedArtifact> entry : selectedArtifacts.entrySet()) {
+      if (published.add(entry.getKey())) {
+        publisher.submit(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * A subscriber counting the artifacts it has consumed, so a failure is only signalled once the artifacts published
+   * before it have been delivered.
+   */
+  private static class TrackedSubscriber implements Flow.Subscriber<ResolvedArtifact> {
+
+    private final Flow.Subscriber<? super ResolvedArtifact> delegate;
+    private long received;
+    private boolean stopped;
+
+    private TrackedSubscriber(Flow.Subscriber<? super ResolvedArtifact> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      delegate.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          subscription.request(n);
+        }
+
+        @Override
+        public void cancel() {
+          stop();
+          subscription.cancel();
+        }
+      });
+    }
+
+    @Override
+    public void onNext(ResolvedArtifact item) {
+      try {
+        delegate.onNext(item);
+      } catch (RuntimeException | Error e) {
+        // The publisher cancels the subscription
+        stop();
+        throw e;
+      }
+      synchronized (this) {
+        received++;
+        notifyAll();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      stop();
+      delegate.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      stop();
+      delegate.onComplete();
+    }
+
+    private synchronized void stop() {
+      stopped = true;
+      notifyAll();
+    }
+
+    /**
+     * Waits until the given number of artifacts has been consumed, or the subscription has ended.
+     *
+     * @param count the number of published artifacts
+     */
+    private synchronized void await(long count) {
+      try {
+        while (!stopped && received < count) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Copies the published artifacts that are not in the output directory yet, while the resolution goes on. The
+   * artifacts already present, possibly with another content, are left to the chain of actions. The copied files
+   * have the content the chain of actions would have copied, so the chain counts them as unchanged.
+   */
+  private class EarlyCopier implements Flow.Subscriber<ResolvedArtifact> {
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final Set<File> copied = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ResolvedArtifact item) {
+      File output = new File(directory, item.getArtifact().getFile().getName());
+      if (!output.exists()) {
+        Actions.copy(item.getArtifact(), directory).execute();
+        copied.add(output);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      done.complete(null);
+    }
+  }
+
   /**
    * Represents a resolved artifact.
    */
@@ -17,6 +17,9 @@
 package io.vertx.stack.model;
 
 import io.vertx.stack.resolver.ResolverOptions;
+import io.vertx.stack.utils.Cache;
+import io.vertx.stack.utils.ClasspathProfiler;
+import io.vertx.stack.utils.TrainingRun;
 
 import java.io.File;
 import java.util.List;
@@ -36,6 +39,38 @@ public class StackResolutionOptions extends ResolverOptions {
 
   private File cacheFile;
 
+  private long cacheSnapshotTtl = Cache.DEFAULT_SNAPSHOT_TTL;
+
+  private int cacheMaxEntries = Cache.DEFAULT_MAX_ENTRIES;
+
+  private boolean cachePruned;
+
+  private File lockFile;
+
+  private boolean locked;
+
+  private boolean nativeLibrariesExtracted;
+
+  private boolean classDataSharing;
+
+  private boolean packageIndexed;
+
+  private boolean serviceRegistry;
+
+  private boolean classpathScanned;
+
+  private boolean classpathProfiled;
+
+  private int classpathProfileSize = ClasspathProfiler.DEFAULT_CLASSES;
+
+  private boolean jarsStored;
+
+  private File storedJarsCache;
+
+  private boolean merged;
+
+  private List<String> trainingCommand = TrainingRun.DEFAULT_COMMAND;
+
   /**
    * @return whether or not the resolution fails on conflicts or just prints a warning.
    */
@@ -78,6 +113,30 @@ public class StackResolutionOptions extends ResolverOptions {
     return this;
   }
 
+  @Override
+  public StackResolutionOptions setOffline(boolean offline) {
+    super.setOffline(offline);
+    return this;
+  }
+
+  @Override
+  public StackResolutionOptions setReleaseUpdatePolicy(String releaseUpdatePolicy) {
+    super.setReleaseUpdatePolicy(releaseUpdatePolicy);
+    return this;
+  }
+
+  @Override
+  public StackResolutionOptions setSnapshotUpdatePolicy(String snapshotUpdatePolicy) {
+    super.setSnapshotUpdatePolicy(snapshotUpdatePolicy);
+    return this;
+  }
+
+  @Override
+  public StackResolutionOptions setResolver(String resolver) {
+    super.setResolver(resolver);
+    return this;
+  }
+
   /**
    * @return whether or not the cache is disabled.
    */
@@ -132,4 +191,322 @@ public class StackResolutionOptions extends ResolverOptions {
     this.cacheFile = cacheFile;
     return this;
   }
+
+  /**
+   * @return the lifetime of the cached resolutions of snapshot dependencies, in milliseconds.
+   */
+  public long getCacheSnapshotTtl() {
+    return cacheSnapshotTtl;
+  }
+
+  /**
+   * Sets the lifetime of the cached resolutions of snapshot dependencies. Once expired, the cache checks whether the
+   * snapshots have changed using the repository metadata, and the dependency is only resolved again if they did.
+   * Defaults to 24 hours.
+   *
+   * @param cacheSnapshotTtl the lifetime in milliseconds
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setCacheSnapshotTtl(long cacheSnapshotTtl) {
+    this.cacheSnapshotTtl = cacheSnapshotTtl;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of entries of the cache.
+   */
+  public int getCacheMaxEntries() {
+    return cacheMaxEntries;
+  }
+
+  /**
+   * Sets the maximum number of entries of the cache. When the cache is full, the least recently used entries are
+   * evicted. Defaults to 1000.
+   *
+   * @param cacheMaxEntries the maximum number of entries, {@code 0} for an unbounded cache
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setCacheMaxEntries(int cacheMaxEntries) {
+    this.cacheMaxEntries = cacheMaxEntries;
+    return this;
+  }
+
+  /**
+   * @return whether or not the cache is compacted before the resolution.
+   */
+  public boolean isCachePruned() {
+    return cachePruned;
+  }
+
+  /**
+   * Sets whether or not the cache is compacted before the resolution, removing the entries whose artifacts no
+   * longer exist.
+   *
+   * @param cachePruned {@code true} to compact the cache, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setCachePruned(boolean cachePruned) {
+    this.cachePruned = cachePruned;
+    return this;
+  }
+
+  /**
+   * @return the location of the lock file, {@code null} if none.
+   */
+  public File getLockFile() {
+    return lockFile;
+  }
+
+  /**
+   * Sets the lock file location. When set, the resolution writes the list of selected artifacts into this file, if
+   * it changed. In locked mode, this file is used as input of the resolution, which fails if the stack has been
+   * modified since the lock file was written.
+   *
+   * @param lockFile the lock file
+   * @return the current {@link StackResolutionOptions} instance
+   * @see #setLocked(boolean)
+   */
+  public StackResolutionOptions setLockFile(File lockFile) {
+    this.lockFile = lockFile;
+    return this;
+  }
+
+  /**
+   * @return whether or not the resolution only fetches the artifacts listed in the lock file.
+   */
+  public boolean isLocked() {
+    return locked;
+  }
+
+  /**
+   * Sets whether or not the resolution only fetches the artifacts listed in the lock file. In this mode, the
+   * dependency graphs are not collected, and the checksum of each fetched artifact is verified.
+   *
+   * @param locked {@code true} to resolve from the lock file, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setLocked(boolean locked) {
+    this.locked = locked;
+    return this;
+  }
+
+  /**
+   * @return whether or not the native libraries of the current platform are extracted from the resolved artifacts.
+   */
+  public boolean isNativeLibrariesExtracted() {
+    return nativeLibrariesExtracted;
+  }
+
+  /**
+   * Sets whether or not the native libraries of the current platform are extracted from the resolved artifacts into
+   * {@code native/<os>-<arch>}. The launcher arguments file ({@code vertx-launcher.args}) of the output directory
+   * then sets {@code java.library.path} to this directory, so Netty does not extract them on every start when the
+   * JVM is started with this file.
+   *
+   * @param nativeLibrariesExtracted {@code true} to extract the native libraries, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setNativeLibrariesExtracted(boolean nativeLibrariesExtracted) {
+    this.nativeLibrariesExtracted = nativeLibrariesExtracted;
+    return this;
+  }
+
+  /**
+   * @return whether or not a Class Data Sharing archive is generated for the resolved jars.
+   */
+  public boolean isClassDataSharing() {
+    return classDataSharing;
+  }
+
+  /**
+   * Sets whether or not a Class Data Sharing archive (or an AOT cache on JDK 25+) is generated for the resolved jars,
+   * by running a training start of the launcher. The archive is only regenerated when the resolved jars change. The
+   * launcher arguments file of the output directory references the archive and the class path it is bound to.
+   *
+   * @param classDataSharing {@code true} to generate the archive, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setClassDataSharing(boolean classDataSharing) {
+    this.classDataSharing = classDataSharing;
+    return this;
+  }
+
+  /**
+   * @return the command of the training runs.
+   */
+  public List<String> getTrainingCommand() {
+    return trainingCommand;
+  }
+
+  /**
+   * Sets the command of the training runs generating the Class Data Sharing archive and profiling the class path:
+   * the main class, followed by its arguments. Defaults to {@code io.vertx.core.Launcher version}.
+   *
+   * @param trainingCommand the training command
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setTrainingCommand(List<String> trainingCommand) {
+    this.trainingCommand = trainingCommand;
+    return this;
+  }
+
+  /**
+   * @return whether or not the package index of the resolved jars is written into the output directory.
+   */
+  public boolean isPackageIndexed() {
+    return packageIndexed;
+  }
+
+  /**
+   * Sets whether or not the index mapping the packages to the resolved jars ({@code vertx-packages.idx}) is written
+   * into the output directory. The {@link io.vertx.stack.launcher.IndexedClassLoader} uses this index to look up the
+   * classes directly in the jars containing their package.
+   *
+   * @param packageIndexed {@code true} to write the index, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setPackageIndexed(boolean packageIndexed) {
+    this.packageIndexed = packageIndexed;
+    return this;
+  }
+
+  /**
+   * @return whether or not the service registry of the resolved jars is written into the output directory.
+   */
+  public boolean isServiceRegistry() {
+    return serviceRegistry;
+  }
+
+  /**
+   * Sets whether or not the registry merging the {@code META-INF/services} files of the resolved jars
+   * ({@code vertx-services.idx}) is written into the output directory. The providers declared by several jars are
+   * reported. The {@link io.vertx.stack.launcher.IndexedClassLoader} serves the service lookups from this registry.
+   *
+   * @param serviceRegistry {@code true} to write the registry, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setServiceRegistry(boolean serviceRegistry) {
+    this.serviceRegistry = serviceRegistry;
+    return this;
+  }
+
+  /**
+   * @return whether or not the resolved jars are scanned for duplicate classes and split packages.
+   */
+  public boolean isClasspathScanned() {
+    return classpathScanned;
+  }
+
+  /**
+   * Sets whether or not the resolved jars are scanned for duplicate classes and split packages. They are reported
+   * as warnings, and duplicate classes fail the resolution when it fails on conflicts. The scan results are cached
+   * by jar checksum in the output directory.
+   *
+   * @param classpathScanned {@code true} to scan the resolved jars, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   * @see #setFailOnConflicts(boolean)
+   */
+  public StackResolutionOptions setClasspathScanned(boolean classpathScanned) {
+    this.classpathScanned = classpathScanned;
+    return this;
+  }
+
+  /**
+   * @return whether or not the class path is ordered according to the classes loaded by a training run.
+   */
+  public boolean isClasspathProfiled() {
+    return classpathProfiled;
+  }
+
+  /**
+   * Sets whether or not the class path is ordered according to the classes loaded by a training run: the jars
+   * serving the most classes among the first loaded classes are put first. The ordered class path is written in
+   * the launcher arguments file of the output directory. The training only runs again when the resolved jars change.
+   *
+   * @param classpathProfiled {@code true} to order the class path, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   * @see #setTrainingCommand(List)
+   */
+  public StackResolutionOptions setClasspathProfiled(boolean classpathProfiled) {
+    this.classpathProfiled = classpathProfiled;
+    return this;
+  }
+
+  /**
+   * @return the number of loaded classes taken into account to order the class path.
+   */
+  public int getClasspathProfileSize() {
+    return classpathProfileSize;
+  }
+
+  /**
+   * Sets the number of classes, loaded first by the training run, taken into account to order the class path.
+   *
+   * @param classpathProfileSize the number of classes, 2000 by default
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setClasspathProfileSize(int classpathProfileSize) {
+    this.classpathProfileSize = classpathProfileSize;
+    return this;
+  }
+
+  /**
+   * @return whether or not the jars are copied into the output directory without compression.
+   */
+  public boolean isJarsStored() {
+    return jarsStored;
+  }
+
+  /**
+   * Sets whether or not the resolved jars are repacked without compression ({@code STORED} entries) when copied
+   * into the output directory, so loading classes does not require inflating them. Signed jars stay valid, and each
+   * jar version is only repacked once, the repacked jars being cached by checksum.
+   *
+   * @param jarsStored {@code true} to repack the jars without compression, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setJarsStored(boolean jarsStored) {
+    this.jarsStored = jarsStored;
+    return this;
+  }
+
+  /**
+   * @return the directory caching the jars repacked without compression, {@code null} if not set.
+   */
+  public File getStoredJarsCache() {
+    return storedJarsCache;
+  }
+
+  /**
+   * Sets the directory caching the jars repacked without compression. Defaults to
+   * {@code $VERTX_HOME/.stack-manager-stored}, or to {@code .stored-jars} in the output directory if
+   * {@code VERTX_HOME} is not set.
+   *
+   * @param storedJarsCache the cache directory
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setStoredJarsCache(File storedJarsCache) {
+    this.storedJarsCache = storedJarsCache;
+    return this;
+  }
+
+  /**
+   * @return whether or not the resolved jars are merged into a single archive.
+   */
+  public boolean isMerged() {
+    return merged;
+  }
+
+  /**
+   * Sets whether or not the resolved jars are merged into a single archive ({@code vertx-stack-merged.jar}) instead
+   * of being copied into the output directory, so the JVM opens a single jar. The archive is updated incrementally
+   * when the resolved jars change. The other artifacts are still copied.
+   *
+   * @param merged {@code true} to merge the jars, {@code false} otherwise (default)
+   * @return the current {@link StackResolutionOptions} instance
+   */
+  public StackResolutionOptions setMerged(boolean merged) {
+    this.merged = merged;
+    return this;
+  }
 }
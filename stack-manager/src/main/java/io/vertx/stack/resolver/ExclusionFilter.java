@@ -0,0 +1,137 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link DependencyFilter} removing the dependencies excluded by one of their ancestors or matching the exclusion
+ * patterns of the resolution, and the dependencies of excluded dependencies.
+ * <p>
+ * The graph is visited depth-first, so the state of each ancestor (the exclusions declared along the path, and
+ * whether the ancestor is excluded) is kept on a stack matching the {@code parents} list, and only computed when a
+ * new path is entered. Exclusions are stored in hash sets keyed by {@code groupId:artifactId}.
+ */
+class ExclusionFilter implements DependencyFilter {
+
+  private final ExclusionMatcher matcher;
+  private final PathState root;
+  private final List<PathState> stack = new ArrayList<>();
+
+  /**
+   * Creates a filter.
+   *
+   * @param matcher the exclusion patterns of the resolution
+   */
+  ExclusionFilter(ExclusionMatcher matcher) {
+    this.matcher = matcher;
+    this.root = new PathState(null, Collections.emptySet(), false);
+  }
+
+  @Override
+  public boolean accept(DependencyNode node, List<DependencyNode> parents) {
+    if (parents.isEmpty()) {
+      return true;
+    }
+    PathState parent = state(parents);
+    return !parent.excluded && !isExcluded(parent, node);
+  }
+
+  private boolean isExcluded(PathState parent, DependencyNode node) {
+    Artifact artifact = node.getArtifact();
+    return artifact != null && (parent.exclusions.contains(key(artifact))
+      || matcher.matches(artifact.getGroupId(), artifact.getArtifactId()));
+  }
+
+  /**
+   * Gets the state of the direct parent, reusing the states computed for the ancestors shared with the previously
+   * visited path.
+   *
+   * @param parents the parents, from the direct parent to the root
+   * @return the state of the direct parent
+   */
+  private PathState state(List<DependencyNode> parents) {
+    int depth = parents.size();
+    // The stack is ordered from the root, the parents list from the direct parent.
+    int shared = 0;
+    while (shared < depth && shared < stack.size() && stack.get(shared).node == parents.get(depth - 1 - shared)) {
+      shared++;
+    }
+    stack.subList(shared, stack.size()).clear();
+    for (int i = shared; i < depth; i++) {
+      PathState inherited = i == 0 ? root : stack.get(i - 1);
+      DependencyNode ancestor = parents.get(depth - 1 - i);
+      stack.add(inherited.enter(ancestor, i > 0 && isExcluded(inherited, ancestor)));
+    }
+    return stack.get(depth - 1);
+  }
+
+  static String key(Artifact artifact) {
+    return artifact.getGroupId() + ":" + artifact.getArtifactId();
+  }
+
+  static String key(Exclusion exclusion) {
+    return exclusion.getGroupId() + ":" + exclusion.getArtifactId();
+  }
+
+  /**
+   * Computes the set of {@code groupId:artifactId} excluded by the given exclusions.
+   *
+   * @param exclusions the exclusions
+   * @return the set of keys
+   */
+  static Set<String> keys(Collection<Exclusion> exclusions) {
+    Set<String> keys = new HashSet<>();
+    for (Exclusion exclusion : exclusions) {
+      keys.add(key(exclusion));
+    }
+    return keys;
+  }
+
+  private static final class PathState {
+
+    private final DependencyNode node;
+    private final Set<String> exclusions;
+    private final boolean excluded;
+
+    private PathState(DependencyNode node, Set<String> exclusions, boolean excluded) {
+      this.node = node;
+      this.exclusions = exclusions;
+      this.excluded = excluded;
+    }
+
+    private PathState enter(DependencyNode child, boolean childExcluded) {
+      Set<String> childExclusions = exclusions;
+      if (child.getDependency() != null && !child.getDependency().getExclusions().isEmpty()) {
+        // Only copy the set when the path declares new exclusions
+        childExclusions = new HashSet<>(exclusions);
+        childExclusions.addAll(keys(child.getDependency().getExclusions()));
+      }
+      return new PathState(child, childExclusions, excluded || childExcluded);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Matches artifacts against a set of exclusion patterns. Patterns are structured as {@code groupId:artifactId}, and
+ * each segment can either be exact, {@code *} (any value) or end with {@code *} to match a prefix, for instance
+ * {@code io.netty:netty-transport-native-*} or {@code org.acme.*:*}. A group ending with {@code .*} also matches the
+ * group itself, so {@code org.acme.*} matches {@code org.acme} and its sub-groups such as {@code org.acme.plugins}.
+ * A single segment pattern only constrains the group: {@code *} excludes everything, and {@code org.acme.*} excludes
+ * all the artifacts of the {@code org.acme} group and of its sub-groups.
+ * <p>
+ * The group patterns are compiled into a trie whose nodes hold a trie of artifact patterns, so matching an artifact
+ * costs a single walk of its group and artifact ids, whatever the number of patterns.
+ */
+public class ExclusionMatcher {
+
+  /**
+   * A matcher excluding nothing.
+   */
+  public static final ExclusionMatcher NONE = new ExclusionMatcher();
+
+  private final Trie<Trie<Boolean>> groups = new Trie<>();
+  private boolean empty = true;
+
+  private ExclusionMatcher() {
+  }
+
+  /**
+   * Compiles the given exclusion patterns.
+   *
+   * @param patterns the patterns
+   * @return the matcher
+   * @throws IllegalStateException if a pattern is invalid
+   */
+  public static ExclusionMatcher compile(Collection<String> patterns) {
+    ExclusionMatcher matcher = new ExclusionMatcher();
+    for (String pattern : patterns) {
+      matcher.add(pattern);
+    }
+    return matcher;
+  }
+
+  private void add(String pattern) {
+    String[] segments = pattern.split(":", -1);
+    if (segments.length > 2 || !isValid(segments[0]) || (segments.length == 2 && !isValid(segments[1]))) {
+      throw new IllegalStateException("Invalid exclusion format: " + pattern + " - exclusion are " +
+        "structured as follows: groupId:artifactId, where segments may end with a `*` wildcard");
+    }
+    String artifact = segments.length == 2 ? segments[1] : "*";
+    groups.computeIfAbsent(segments[0], Trie::new).computeIfAbsent(artifact, () -> Boolean.TRUE);
+    if (segments[0].length() > 2 && segments[0].endsWith(".*")) {
+      // The parent group itself
+      String group = segments[0].substring(0, segments[0].length() - 2);
+      groups.computeIfAbsent(group, Trie::new).computeIfAbsent(artifact, () -> Boolean.TRUE);
+    }
+    empty = false;
+  }
+
+  /**
+   * Checks whether the given exclusion is a pattern rather than an exact {@code groupId:artifactId}.
+   *
+   * @param exclusion the exclusion
+   * @return {@code true} if the exclusion contains a wildcard or has a single segment
+   */
+  public static boolean isWildcard(String exclusion) {
+    return exclusion.indexOf('*') != -1 || exclusion.indexOf(':') == -1;
+  }
+
+  private static boolean isValid(String segment) {
+    int wildcard = segment.indexOf('*');
+    return !segment.isEmpty() && (wildcard == -1 || wildcard == segment.length() - 1);
+  }
+
+  /**
+   * @return whether or not this matcher has no pattern.
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Checks whether the given artifact is excluded.
+   *
+   * @param groupId    the group id
+   * @param artifactId the artifact id
+   * @return {@code true} if one of the patterns matches the artifact, {@code false} otherwise
+   */
+  public boolean matches(String groupId, String artifactId) {
+    if (empty) {
+      return false;
+    }
+    return groups.anyMatch(groupId, artifacts -> artifacts.anyMatch(artifactId, match -> match));
+  }
+
+  /**
+   * A character trie storing, for each node, the value of the exact pattern ending at this node and the value of
+   * the prefix pattern ({@code prefix*}) ending at this node. A {@code *} pattern is a prefix pattern stored at the
+   * root.
+   */
+  private static class Trie<V> {
+
+    private final Map<Character, Trie<V>> children = new HashMap<>(4);
+    private V exact;
+    private V prefix;
+
+    private Trie<V> node(String key) {
+      Trie<V> node = this;
+      for (int i = 0; i < key.length(); i++) {
+        node = node.children.computeIfAbsent(key.charAt(i), c -> new Trie<>());
+      }
+      return node;
+    }
+
+    V computeIfAbsent(String pattern, Supplier<V> supplier) {
+      boolean isPrefix = pattern.endsWith("*");
+      Trie<V> node = node(isPrefix ? pattern.substring(0, pattern.length() - 1) : pattern);
+      if (isPrefix) {
+        if (node.prefix == null) {
+          node.prefix = supplier.get();
+        }
+        return node.prefix;
+      }
+      if (node.exact == null) {
+        node.exact = supplier.get();
+      }
+      return node.exact;
+    }
+
+    /**
+     * Walks the trie along the given key, and checks the values of the patterns matching the key.
+     */
+    boolean anyMatch(String key, Predicate<V> predicate) {
+      Trie<V> node = this;
+      for (int i = 0; ; i++) {
+        if (node.prefix != null && predicate.test(node.prefix)) {
+          return true;
+        }
+        if (i == key.length()) {
+          return node.exact != null && predicate.test(node.exact);
+        }
+        node = node.children.get(key.charAt(i));
+        if (node == null) {
+          return false;
+        }
+      }
+    }
+  }
+}
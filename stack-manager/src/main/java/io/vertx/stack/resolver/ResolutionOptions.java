@@ -27,6 +27,7 @@ public class ResolutionOptions {
 
   private boolean withTransitive = true;
   private List<String> exclusions = new ArrayList<>();
+  private String platform;
 
   /**
    * @return whether or not the resolution should also resolve the transitive dependencies.
@@ -49,7 +50,11 @@ public class ResolutionOptions {
 
   /**
    * Adds an exclusion. The excluded dependencies and its children would not be resolved. The exclusion is given
-   * under the following form: {@code groupId:artifactId}.
+   * under the following form: {@code groupId:artifactId}. Each segment can be {@code *} or end with {@code *} to
+   * match a prefix, such as {@code io.netty:netty-transport-native-*}. A group ending with {@code .*} also matches
+   * the group itself. A single segment only matches the group, so {@code org.acme.*} excludes every artifact of the
+   * {@code org.acme} group and of its sub-groups. Dependencies matching a wildcard exclusion are pruned while the
+   * dependency graph is collected.
    *
    * @param exclusion the exclusion to add
    * @return the current {@link ResolutionOptions} instance
@@ -78,6 +83,26 @@ public class ResolutionOptions {
     return exclusions;
   }
 
+  /**
+   * @return the platform classifier the resolved artifacts must match, {@code null} if not set.
+   */
+  public String getPlatform() {
+    return platform;
+  }
+
+  /**
+   * Sets the platform classifier, such as {@code linux-x86_64}. When set, the transitive dependencies whose
+   * classifier denotes another platform (such as {@code osx-aarch_64}) are pruned while the dependency graph is
+   * collected, so they are never downloaded. Dependencies without a platform classifier are not affected.
+   *
+   * @param platform the platform classifier, {@code null} to resolve the artifacts of every platform (default)
+   * @return the current {@link ResolutionOptions} instance
+   */
+  public ResolutionOptions setPlatform(String platform) {
+    this.platform = platform;
+    return this;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -86,6 +111,7 @@ public class ResolutionOptions {
     ResolutionOptions that = (ResolutionOptions) o;
 
     if (isWithTransitive() != that.isWithTransitive()) return false;
+    if (!Objects.equals(getPlatform(), that.getPlatform())) return false;
 
     Set<String> set1 = new HashSet<>();
     set1.addAll(that.getExclusions());
@@ -97,7 +123,8 @@ public class ResolutionOptions {
   @Override
   public int hashCode() {
     int result = (isWithTransitive() ? 1 : 0);
-    result = 31 * result + getExclusions().hashCode();
+    result = 31 * result + new HashSet<>(getExclusions()).hashCode();
+    result = 31 * result + Objects.hashCode(getPlatform());
     return result;
   }
 }
@@ -19,10 +19,16 @@ package io.vertx.stack.resolver;
 
 import io.vertx.stack.model.Artifact;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Interface implemented by resolver. Resolvers are responsible for the resolution of the dependencies.
+ * <p>
+ * Only {@link #resolve(String, ResolutionOptions)} must be implemented. The other methods have default
+ * implementations built on it, so resolvers written against the initial contract keep working. Implementations
+ * should override them when they can collect the dependencies or fetch the artifacts more efficiently.
  *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
@@ -38,22 +44,77 @@ public interface Resolver {
    */
   List<Artifact> resolve(String dependency, ResolutionOptions options);
 
+  /**
+   * Collects the artifacts a dependency would resolve to, without downloading them. Only the POM files are fetched,
+   * so the returned artifacts have no file. The same exclusion, optional and scope rules as
+   * {@link #resolve(String, ResolutionOptions)} are applied. The returned artifacts can then be downloaded using
+   * {@link #resolveArtifacts(List)}.
+   *
+   * <p>
+   * The default implementation resolves the dependency, so the artifacts are downloaded and have their file set.
+   *
+   * @param dependency the dependency, using the GACV form.
+   * @param options    the resolution options
+   * @return the list of collected artifacts. The first artifact of the list if the artifact for the given dependency.
+   */
+  default List<Artifact> collect(String dependency, ResolutionOptions options) {
+    return resolve(dependency, options);
+  }
+
+  /**
+   * Resolves the given artifacts, without collecting their dependencies. The artifacts are fetched in parallel.
+   *
+   * <p>
+   * The default implementation resolves the artifacts one at a time, without their transitive dependencies.
+   *
+   * @param artifacts the artifacts to resolve
+   * @return the resolved artifacts, in the same order, with their file set. The provenance ({@code via}) of the
+   * given artifacts is preserved.
+   */
+  default List<Artifact> resolveArtifacts(List<Artifact> artifacts) {
+    List<Artifact> resolved = new ArrayList<>();
+    for (Artifact artifact : artifacts) {
+      File file = resolve(artifact.getCoordinates(), new ResolutionOptions().setWithTransitive(false)).get(0)
+        .getFile();
+      resolved.add(artifact.setFile(file));
+    }
+    return resolved;
+  }
+
+  /**
+   * Resolves the current version of the given artifact using only the repository metadata
+   * ({@code maven-metadata.xml}). The artifact file and its dependencies are not resolved. For a snapshot, the
+   * returned version identifies the latest build (timestamp and build number), and the metadata is always checked
+   * against the remote repositories, unless the resolver works offline.
+   *
+   * <p>
+   * The default implementation resolves the artifact, without its transitive dependencies, and returns the version
+   * of the resolved artifact.
+   *
+   * @param artifact the artifact
+   * @return the resolved version
+   */
+  default String resolveVersion(Artifact artifact) {
+    return resolve(artifact.getCoordinates(), new ResolutionOptions().setWithTransitive(false)).get(0).getVersion();
+  }
+
   /**
    * Creates a {@link Resolver} using the default implementation and default options.
    *
    * @return the created {@link Resolver}.
    */
   static Resolver create() {
-    return new ResolverImpl(new ResolverOptions());
+    return create(new ResolverOptions());
   }
 
   /**
-   * Creates a {@link Resolver} using the default implementation and the given options.
+   * Creates a {@link Resolver} using the given options. The implementation is provided by the
+   * {@link ResolverFactory} selected in the options, the Aether based implementation by default.
    *
    * @param options the resolver options
    * @return the created {@link Resolver}.
    */
   static Resolver create(ResolverOptions options) {
-    return new ResolverImpl(options);
+    return ResolverFactory.lookup(options.getResolver()).create(options);
   }
 }
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * SPI to provide {@link Resolver} implementations. Factories are discovered using {@link ServiceLoader}, and are
+ * selected by name using {@link ResolverOptions#setResolver(String)}. The default factory is the Aether based
+ * implementation, named {@value #DEFAULT_NAME}.
+ * <p>
+ * Every implementation must pass the resolver conformance tests ({@code ResolverTest}).
+ */
+public interface ResolverFactory {
+
+  /**
+   * The name of the default factory.
+   */
+  String DEFAULT_NAME = "aether";
+
+  /**
+   * @return the name of the resolver implementation, used to select it.
+   */
+  String name();
+
+  /**
+   * Creates a {@link Resolver}.
+   *
+   * @param options the resolver options
+   * @return the created {@link Resolver}
+   */
+  Resolver create(ResolverOptions options);
+
+  /**
+   * Looks up a {@link ResolverFactory} by name.
+   *
+   * @param name the name, {@code null} for the default factory
+   * @return the factory
+   * @throws IllegalArgumentException if no factory has the given name
+   */
+  static ResolverFactory lookup(String name) {
+    String expected = name == null ? DEFAULT_NAME : name;
+    List<String> names = new ArrayList<>();
+    for (ResolverFactory factory : ServiceLoader.load(ResolverFactory.class, ResolverFactory.class.getClassLoader())) {
+      if (factory.name().equals(expected)) {
+        return factory;
+      }
+      names.add(factory.name());
+    }
+    throw new IllegalArgumentException("Cannot find the resolver " + expected + ", available resolvers are "
+      + names);
+  }
+}
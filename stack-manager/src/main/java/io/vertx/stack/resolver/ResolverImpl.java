@@ -20,34 +20,55 @@ package io.vertx.stack.resolver;
 import io.vertx.core.internal.logging.Logger;
 import io.vertx.core.internal.logging.LoggerFactory;
 import io.vertx.stack.model.Artifact;
+import io.vertx.stack.utils.Platform;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.collection.DependencyCollectionContext;
+import org.eclipse.aether.collection.DependencySelector;
 import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.graph.DefaultDependencyNode;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.graph.DependencyFilter;
 import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.graph.Exclusion;
 import org.eclipse.aether.impl.DefaultServiceLocator;
 import org.eclipse.aether.repository.*;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.eclipse.aether.resolution.DependencyResult;
+import org.eclipse.aether.resolution.VersionRequest;
+import org.eclipse.aether.resolution.VersionResolutionException;
 import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
 import org.eclipse.aether.spi.connector.transport.TransporterFactory;
 import org.eclipse.aether.transport.file.FileTransporterFactory;
 import org.eclipse.aether.transport.http.HttpTransporterFactory;
 import org.eclipse.aether.util.artifact.JavaScopes;
 import org.eclipse.aether.util.filter.DependencyFilterUtils;
+import org.eclipse.aether.util.graph.selector.AndDependencySelector;
 import org.eclipse.aether.util.repository.AuthenticationBuilder;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -60,11 +81,14 @@ public class ResolverImpl implements Resolver {
 
   private final static Logger LOGGER = LoggerFactory.getLogger("vertx-stack-resolver");
 
-  public static final String REMOTE_SNAPSHOT_POLICY_SYS_PROP = "vertx.maven.remoteSnapshotPolicy";
+  public static final String REMOTE_SNAPSHOT_POLICY_SYS_PROP = ResolverOptions.SNAPSHOT_UPDATE_POLICY_SYS_PROP;
 
   private final RepositorySystem system;
   private final LocalRepository localRepo;
   private final List<RemoteRepository> remotes = new ArrayList<>();
+  private final boolean offline;
+  private final String releaseUpdatePolicy;
+  private final String snapshotUpdatePolicy;
 
   /**
    * Creates a new instance of {@link ResolverImpl} with the given options.
@@ -76,11 +100,15 @@ public class ResolverImpl implements Resolver {
     List<String> remoteMavenRepos = options.getRemoteRepositories();
     String httpProxy = options.getHttpProxy();
     String httpsProxy = options.getHttpsProxy();
+    offline = options.isOffline();
+    releaseUpdatePolicy = options.getReleaseUpdatePolicy();
+    snapshotUpdatePolicy = options.getSnapshotUpdatePolicy();
 
     DefaultServiceLocator locator = getDefaultServiceLocator();
 
     system = locator.getService(RepositorySystem.class);
-    localRepo = new LocalRepository(localMavenRepo);
+    // In offline mode, any file present in the local repository is used, whatever the repository it comes from.
+    localRepo = offline ? new LocalRepository(new File(localMavenRepo), "simple") : new LocalRepository(localMavenRepo);
     Proxy proxy = getHttpProxy(httpProxy);
     Proxy secureProxy = getHttpsProxy(httpsProxy);
 
@@ -173,34 +201,89 @@ public class ResolverImpl implements Resolver {
   /**
    * Resolve the given artifact.
    *
-   * @param artifact   the artifact
-   * @param withTransitive whether the transitive dependencies needs to be resolved too
-   * @param exclusions the list of exclusions
+   * @param artifact the artifact
+   * @param options  the resolution options
    * @return the list of resolved artifacts
    */
-  private DependencyNode resolve(Artifact artifact, boolean withTransitive, List<String> exclusions) {
+  private DependencyNode resolve(Artifact artifact, ResolutionOptions options) {
+    if (!options.isWithTransitive()) {
+      // No need to collect the graph, only the artifact itself is downloaded
+      return new DefaultDependencyNode(new Dependency(resolveArtifact(artifact), JavaScopes.COMPILE));
+    }
+    List<String> exclusions = options.getExclusions();
+    ExclusionMatcher matcher = ExclusionMatcher.compile(exclusions);
     CollectRequest collectRequest = collectRequest(artifact, exclusions, remotes);
-    DependencyRequest dependencyRequest = new DependencyRequest(collectRequest, dependencyFilter());
-    RepositorySystemSession session = session(system, localRepo);
+    DependencyRequest dependencyRequest = new DependencyRequest(collectRequest, dependencyFilter(matcher));
     try {
-      DependencyResult dependencyResult = system.resolveDependencies(session, dependencyRequest);
-      DependencyNode root = dependencyResult.getRoot();
-      if (withTransitive) {
-        return root;
-      } else {
-        root.setChildren(new ArrayList<>());
-        return root;
-      }
+      DependencyResult dependencyResult = system.resolveDependencies(collectionSession(options), dependencyRequest);
+      return dependencyResult.getRoot();
     } catch (DependencyResolutionException e) {
+      if (offline && e.getResult() != null) {
+        throw offlineFailure(artifact.toString(), e.getResult().getArtifactResults(), e);
+      }
+      throw new IllegalArgumentException("Cannot resolve artifact " + artifact.toString() +
+        " in maven repositories: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Creates the session used to collect a dependency graph.
+   *
+   * @param options the resolution options
+   * @return the session
+   */
+  private DefaultRepositorySystemSession collectionSession(ResolutionOptions options) {
+    DefaultRepositorySystemSession session = session();
+    ExclusionMatcher wildcards = ExclusionMatcher.compile(options.getExclusions().stream()
+      .filter(ExclusionMatcher::isWildcard)
+      .collect(Collectors.toList()));
+    if (!wildcards.isEmpty()) {
+      // Prune the dependencies matching a wildcard exclusion during the collection, so their POM and files are
+      // never downloaded. Exact exclusions keep their historical behavior: they are set on the root dependency and
+      // filtered after the collection.
+      session.setDependencySelector(
+        new AndDependencySelector(session.getDependencySelector(), new ExclusionSelector(wildcards)));
+    }
+    if (options.getPlatform() != null) {
+      session.setDependencySelector(
+        new AndDependencySelector(session.getDependencySelector(), new PlatformSelector(options.getPlatform())));
+    }
+    return session;
+  }
+
+  private org.eclipse.aether.artifact.Artifact resolveArtifact(Artifact artifact) {
+    try {
+      return system.resolveArtifact(session(), new ArtifactRequest(artifact, remotes, null)).getArtifact();
+    } catch (ArtifactResolutionException e) {
+      if (offline) {
+        throw offlineFailure(artifact.toString(), e.getResults(), e);
+      }
       throw new IllegalArgumentException("Cannot resolve artifact " + artifact.toString() +
         " in maven repositories: " + e.getMessage());
     }
   }
 
+  /**
+   * Creates the exception reporting the artifacts missing from the local repository when working offline.
+   */
+  private IllegalArgumentException offlineFailure(String what, List<ArtifactResult> results, Exception cause) {
+    List<String> missing = results.stream()
+      .filter(result -> !result.isResolved())
+      .map(result -> result.getRequest().getArtifact().toString())
+      .collect(Collectors.toList());
+    if (missing.isEmpty()) {
+      return new IllegalArgumentException("Cannot resolve " + what + " in offline mode: " + cause.getMessage());
+    }
+    return new IllegalArgumentException("Cannot resolve " + what + " in offline mode - the following artifacts are " +
+      "missing from the local repository " + localRepo.getBasedir().getAbsolutePath() + ": " + missing);
+  }
+
   protected void customizeRemoteRepoBuilder(RemoteRepository.Builder builder) {
-    String updatePolicy = System.getProperty(REMOTE_SNAPSHOT_POLICY_SYS_PROP);
-    if (updatePolicy != null && !updatePolicy.isEmpty()) {
-      builder.setSnapshotPolicy(new RepositoryPolicy(true, updatePolicy, RepositoryPolicy.CHECKSUM_POLICY_WARN));
+    if (releaseUpdatePolicy != null) {
+      builder.setReleasePolicy(new RepositoryPolicy(true, releaseUpdatePolicy, RepositoryPolicy.CHECKSUM_POLICY_WARN));
+    }
+    if (snapshotUpdatePolicy != null) {
+      builder.setSnapshotPolicy(new RepositoryPolicy(true, snapshotUpdatePolicy, RepositoryPolicy.CHECKSUM_POLICY_WARN));
     }
   }
 
@@ -220,9 +303,10 @@ public class ResolverImpl implements Resolver {
     return null;
   }
 
-  private static RepositorySystemSession session(RepositorySystem system, LocalRepository localRepo) {
+  private DefaultRepositorySystemSession session() {
     DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
     session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepo));
+    session.setOffline(offline);
     return session;
   }
 
@@ -231,13 +315,10 @@ public class ResolverImpl implements Resolver {
     Dependency root = new Dependency(artifact, JavaScopes.COMPILE)
       .setExclusions(
         exclusions.stream()
+          .filter(e -> !ExclusionMatcher.isWildcard(e))
           .map(e -> {
             // Exclusion are structured as groupId:artifactId.
             String[] segments = e.split(":");
-            if (segments.length != 2) {
-              throw new IllegalStateException("Invalid exclusion format: " + e + " - exclusion are " +
-                "structured as follows: groupId:artifactId");
-            }
             return new Exclusion(segments[0], segments[1], null, null);
           })
           .collect(Collectors.toList()));
@@ -246,7 +327,7 @@ public class ResolverImpl implements Resolver {
     return collectRequest;
   }
 
-  private static DependencyFilter dependencyFilter() {
+  private static DependencyFilter dependencyFilter(ExclusionMatcher matcher) {
     return
       DependencyFilterUtils.andFilter(
         DependencyFilterUtils.classpathFilter(
@@ -263,31 +344,8 @@ public class ResolverImpl implements Resolver {
           return !dependencyNode.getDependency().isOptional();
         },
 
-        // Remove excluded dependencies
-        (dependencyNode, list) -> {
-          // Build the list of exclusion, traverse the tree.
-          Collection<Exclusion> ex = new ArrayList<>();
-          for (DependencyNode parent : list) {
-            ex.addAll(parent.getDependency().getExclusions());
-          }
-
-          for (Exclusion e : ex) {
-            // Check the the passed artifact is excluded
-            if (e.getArtifactId().equals(dependencyNode.getArtifact().getArtifactId())
-              && e.getGroupId().equals(dependencyNode.getArtifact().getGroupId())) {
-              return false;
-            }
-
-            // Check if a parent artifact is excluded
-            for (DependencyNode parent : list) {
-              if (e.getArtifactId().equals(parent.getArtifact().getArtifactId())
-                && e.getGroupId().equals(parent.getArtifact().getGroupId())) {
-                return false;
-              }
-            }
-          }
-          return true;
-        },
+        // Remove excluded dependencies and dependencies of excluded dependencies
+        new ExclusionFilter(matcher),
 
         // Remove provided dependencies and transitive dependencies of provided dependencies
         (dependencyNode, list) -> {
@@ -303,31 +361,206 @@ public class ResolverImpl implements Resolver {
 
   @Override
   public List<Artifact> resolve(String gacv, ResolutionOptions options) {
-    DependencyNode root = resolve(new Artifact(gacv), options.isWithTransitive(), options.getExclusions());
-    List<Exclusion> exclusions = Stream.concat(Stream.of(root), root.getChildren().stream())
+    DependencyNode root = resolve(new Artifact(gacv), options);
+    return flatten(root, options);
+  }
+
+  @Override
+  public List<Artifact> collect(String gacv, ResolutionOptions options) {
+    Artifact artifact = new Artifact(gacv);
+    if (!options.isWithTransitive()) {
+      return Collections.singletonList(artifact);
+    }
+    List<String> exclusions = options.getExclusions();
+    ExclusionMatcher matcher = ExclusionMatcher.compile(exclusions);
+    DependencyNode root;
+    try {
+      root = system.collectDependencies(collectionSession(options), collectRequest(artifact, exclusions, remotes))
+        .getRoot();
+    } catch (DependencyCollectionException e) {
+      throw new IllegalArgumentException("Cannot collect the dependencies of " + artifact.toString() +
+        " in maven repositories: " + e.getMessage());
+    }
+    return flatten(filter(root, dependencyFilter(matcher)), options);
+  }
+
+  private static List<Artifact> flatten(DependencyNode root, ResolutionOptions options) {
+    List<String> patterns = new ArrayList<>(options.getExclusions());
+    patterns.addAll(ExclusionFilter.keys(Stream.concat(Stream.of(root), root.getChildren().stream())
       .map(DependencyNode::getDependency)
       .flatMap(dependency -> dependency.getExclusions().stream())
-      .collect(Collectors.toList());
+      .collect(Collectors.toList())));
+    ExclusionMatcher exclusions = ExclusionMatcher.compile(patterns);
     Artifact rootArtifact = new Artifact(root.getArtifact(), null);
-    return Stream
-      .concat(Stream.of(rootArtifact), toArtifacts(root, rootArtifact, exclusions))
+    List<Artifact> artifacts = new ArrayList<>();
+    artifacts.add(rootArtifact);
+    artifacts.addAll(toArtifacts(root, rootArtifact, exclusions));
+    return artifacts;
+  }
+
+  /**
+   * Copies the given graph, keeping only the nodes accepted by the filter. The graph is walked depth-first, as during
+   * a dependency resolution. The nodes of a collected graph may share their children, so the graph is not modified.
+   *
+   * @param root   the root of the graph
+   * @param filter the filter
+   * @return the root of the filtered copy
+   */
+  static DependencyNode filter(DependencyNode root, DependencyFilter filter) {
+    // The path from the root, exposed to the filter as the list of parents from the direct parent
+    List<DependencyNode> path = new ArrayList<>();
+    List<DependencyNode> parents = new AbstractList<DependencyNode>() {
+      @Override
+      public DependencyNode get(int index) {
+        return path.get(path.size() - 1 - index);
+      }
+
+      @Override
+      public int size() {
+        return path.size();
+      }
+    };
+    DefaultDependencyNode copy = new DefaultDependencyNode(root);
+    Deque<Iterator<DependencyNode>> iterators = new ArrayDeque<>();
+    Deque<DefaultDependencyNode> copies = new ArrayDeque<>();
+    path.add(root);
+    iterators.push(root.getChildren().iterator());
+    copies.push(copy);
+    while (!iterators.isEmpty()) {
+      Iterator<DependencyNode> iterator = iterators.peek();
+      if (!iterator.hasNext()) {
+        iterators.pop();
+        copies.pop();
+        path.remove(path.size() - 1);
+        continue;
+      }
+      DependencyNode child = iterator.next();
+      if (filter.accept(child, parents)) {
+        DefaultDependencyNode childCopy = new DefaultDependencyNode(child);
+        copies.peek().getChildren().add(childCopy);
+        path.add(child);
+        iterators.push(child.getChildren().iterator());
+        copies.push(childCopy);
+      }
+    }
+    return copy;
+  }
+
+  @Override
+  public List<Artifact> resolveArtifacts(List<Artifact> artifacts) {
+    List<ArtifactRequest> requests = artifacts.stream()
+      .map(artifact -> new ArtifactRequest(artifact, remotes, null))
       .collect(Collectors.toList());
+    RepositorySystemSession session = session();
+    List<ArtifactResult> results;
+    try {
+      // The connector downloads the artifacts of a single batch in parallel.
+      results = system.resolveArtifacts(session, requests);
+    } catch (ArtifactResolutionException e) {
+      if (offline) {
+        throw offlineFailure("the artifacts", e.getResults(), e);
+      }
+      throw new IllegalArgumentException("Cannot resolve artifacts in maven repositories: " + e.getMessage());
+    }
+    List<Artifact> resolved = new ArrayList<>(results.size());
+    for (int i = 0; i < results.size(); i++) {
+      resolved.add(new Artifact(results.get(i).getArtifact(), artifacts.get(i).getVia()));
+    }
+    return resolved;
+  }
+
+  @Override
+  public String resolveVersion(Artifact artifact) {
+    DefaultRepositorySystemSession session = session();
+    // Only the metadata is fetched, so make sure it's up to date.
+    session.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+    VersionRequest request = new VersionRequest(new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(),
+      artifact.getClassifier(), artifact.getExtension(), artifact.getBaseVersion()), remotes, null);
+    try {
+      return system.resolveVersion(session, request).getVersion();
+    } catch (VersionResolutionException e) {
+      throw new IllegalArgumentException("Cannot resolve the version of " + artifact.toString() +
+        " in maven repositories: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Flattens the dependency graph. The graph is walked breadth-first, so each artifact is emitted once, with its
+   * shortest provenance path, and shared subtrees are only visited once.
+   *
+   * @param root         the root node
+   * @param rootArtifact the artifact of the root node, not included in the returned list
+   * @param exclusions   the excluded dependencies
+   * @return the artifacts of the graph
+   */
+  static List<Artifact> toArtifacts(DependencyNode root, Artifact rootArtifact, ExclusionMatcher exclusions) {
+    List<Artifact> artifacts = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    visited.add(root.getArtifact().toString());
+    Deque<Map.Entry<DependencyNode, Artifact>> queue = new ArrayDeque<>();
+    queue.add(new AbstractMap.SimpleImmutableEntry<>(root, rootArtifact));
+    while (!queue.isEmpty()) {
+      Map.Entry<DependencyNode, Artifact> current = queue.poll();
+      for (DependencyNode childNode : current.getKey().getChildren()) {
+        // remove optional dependencies, excluded dependencies, provided dependencies and transitive dependencies of
+        // provided dependencies
+        if (childNode.getDependency().isOptional()
+          || exclusions.matches(childNode.getArtifact().getGroupId(), childNode.getArtifact().getArtifactId())
+          || !childNode.getDependency().getScope().equalsIgnoreCase("compile")) {
+          continue;
+        }
+        // the key contains the full coordinates: group, artifact, extension, classifier and version
+        if (visited.add(childNode.getArtifact().toString())) {
+          Artifact childArtifact = new Artifact(childNode.getArtifact(), current.getValue());
+          artifacts.add(childArtifact);
+          queue.add(new AbstractMap.SimpleImmutableEntry<>(childNode, childArtifact));
+        }
+      }
+    }
+    return artifacts;
   }
 
-  private Stream<Artifact> toArtifacts(DependencyNode dependencyNode, Artifact rootArtifact, List<Exclusion> exclusions) {
-    return dependencyNode.getChildren().stream()
-      // remove optional dependencies
-      .filter(childNode -> !childNode.getDependency().isOptional())
-      // remove excluded dependencies
-      .filter(childNode -> exclusions.stream().noneMatch(exclusion ->
-        exclusion.getGroupId().equals(childNode.getArtifact().getGroupId())
-          && exclusion.getArtifactId().equals(childNode.getArtifact().getArtifactId())))
-      // remove provided dependencies and transitive dependencies of provided dependencies
-      .filter(childNode -> childNode.getDependency().getScope().equalsIgnoreCase("compile"))
-      .flatMap(childNode -> {
-        Artifact childArtifact = new Artifact(childNode.getArtifact(), rootArtifact);
-        return Stream.concat(Stream.of(childArtifact), toArtifacts(childNode, childArtifact, exclusions));
-      });
+  /**
+   * A dependency selector rejecting the dependencies matching the exclusion patterns, at any depth.
+   */
+  private static class ExclusionSelector implements DependencySelector {
+
+    private final ExclusionMatcher matcher;
+
+    private ExclusionSelector(ExclusionMatcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency) {
+      return !matcher.matches(dependency.getArtifact().getGroupId(), dependency.getArtifact().getArtifactId());
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context) {
+      return this;
+    }
   }
 
+  /**
+   * A {@link DependencySelector} pruning the dependencies whose classifier denotes another platform.
+   */
+  private static class PlatformSelector implements DependencySelector {
+
+    private final String platform;
+
+    private PlatformSelector(String platform) {
+      this.platform = platform;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency) {
+      return Platform.matches(dependency.getArtifact().getClassifier(), platform);
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context) {
+      return this;
+    }
+  }
 }
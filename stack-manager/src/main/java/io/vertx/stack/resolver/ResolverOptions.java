@@ -31,6 +31,10 @@ public class ResolverOptions {
   public static final String REMOTE_REPOS_SYS_PROP = "vertx.maven.remoteRepos";
   public static final String HTTP_PROXY_SYS_PROP = "vertx.maven.httpProxy";
   public static final String HTTPS_PROXY_SYS_PROP = "vertx.maven.httpsProxy";
+  public static final String OFFLINE_SYS_PROP = "vertx.maven.offline";
+  public static final String RELEASE_UPDATE_POLICY_SYS_PROP = "vertx.maven.releaseUpdatePolicy";
+  public static final String SNAPSHOT_UPDATE_POLICY_SYS_PROP = "vertx.maven.remoteSnapshotPolicy";
+  public static final String RESOLVER_SYS_PROP = "vertx.maven.resolver";
 
   private static final String USER_HOME = System.getProperty("user.home");
   private static final String FILE_SEP = System.getProperty("file.separator");
@@ -47,6 +51,31 @@ public class ResolverOptions {
   private String httpProxy = System.getProperty(HTTP_PROXY_SYS_PROP);
   private String httpsProxy = System.getProperty(HTTPS_PROXY_SYS_PROP);
 
+  private boolean offline = Boolean.getBoolean(OFFLINE_SYS_PROP);
+  private String releaseUpdatePolicy = emptyToNull(System.getProperty(RELEASE_UPDATE_POLICY_SYS_PROP));
+  private String snapshotUpdatePolicy = emptyToNull(System.getProperty(SNAPSHOT_UPDATE_POLICY_SYS_PROP));
+
+  private String resolver = emptyToNull(System.getProperty(RESOLVER_SYS_PROP));
+
+  /**
+   * @return the name of the {@link ResolverFactory} used to create the resolver, {@code null} for the default one.
+   */
+  public String getResolver() {
+    return resolver;
+  }
+
+  /**
+   * Sets the name of the {@link ResolverFactory} used to create the resolver. Factories are discovered using the
+   * {@link java.util.ServiceLoader} mechanism. Defaults to the Aether based implementation ({@code aether}).
+   *
+   * @param resolver the name of the resolver implementation
+   * @return the current {@link ResolverOptions} instance
+   */
+  public ResolverOptions setResolver(String resolver) {
+    this.resolver = emptyToNull(resolver);
+    return this;
+  }
+
   /**
    * @return the configured proxy address for HTTP request, {@code null} if none.
    */
@@ -125,4 +154,76 @@ public class ResolverOptions {
     this.remoteRepositories = remoteRepositories;
     return this;
   }
+
+  /**
+   * @return whether or not the resolver works offline.
+   */
+  public boolean isOffline() {
+    return offline;
+  }
+
+  /**
+   * Sets whether or not the resolver works offline. In offline mode, the artifacts are only resolved from the local
+   * repository, and the resolution fails with the list of missing artifacts instead of contacting the remote
+   * repositories.
+   *
+   * @param offline {@code true} to work offline, {@code false} otherwise (default)
+   * @return the current {@link ResolverOptions} instance
+   */
+  public ResolverOptions setOffline(boolean offline) {
+    this.offline = offline;
+    return this;
+  }
+
+  /**
+   * @return the update policy used for releases, {@code null} to use the default policy.
+   */
+  public String getReleaseUpdatePolicy() {
+    return releaseUpdatePolicy;
+  }
+
+  /**
+   * Sets the update policy of the remote repositories for releases. Accepted values are {@code always},
+   * {@code daily}, {@code never} and {@code interval:X} (X being a number of minutes).
+   *
+   * @param releaseUpdatePolicy the update policy, {@code null} to use the default policy
+   * @return the current {@link ResolverOptions} instance
+   */
+  public ResolverOptions setReleaseUpdatePolicy(String releaseUpdatePolicy) {
+    this.releaseUpdatePolicy = checkUpdatePolicy(releaseUpdatePolicy);
+    return this;
+  }
+
+  /**
+   * @return the update policy used for snapshots, {@code null} to use the default policy.
+   */
+  public String getSnapshotUpdatePolicy() {
+    return snapshotUpdatePolicy;
+  }
+
+  /**
+   * Sets the update policy of the remote repositories for snapshots. Accepted values are {@code always},
+   * {@code daily}, {@code never} and {@code interval:X} (X being a number of minutes).
+   *
+   * @param snapshotUpdatePolicy the update policy, {@code null} to use the default policy
+   * @return the current {@link ResolverOptions} instance
+   */
+  public ResolverOptions setSnapshotUpdatePolicy(String snapshotUpdatePolicy) {
+    this.snapshotUpdatePolicy = checkUpdatePolicy(snapshotUpdatePolicy);
+    return this;
+  }
+
+  private static String checkUpdatePolicy(String policy) {
+    policy = emptyToNull(policy);
+    if (policy == null || policy.equals("always") || policy.equals("daily") || policy.equals("never")
+        || policy.matches("interval:\\d+")) {
+      return policy;
+    }
+    throw new IllegalArgumentException("Invalid update policy: " + policy + " - accepted values are always, daily, " +
+        "never and interval:X");
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
 }
@@ -23,6 +23,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Common {@link Action} implementation.
@@ -58,7 +61,7 @@ public class Actions {
       Path output = directory.toPath().resolve(source.getFileName());
       LOGGER.info("Copying " + source.getFileName());
       try {
-        Files.copy(source, output);
+        Files.copy(source, output, StandardCopyOption.REPLACE_EXISTING);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -75,6 +78,19 @@ public class Actions {
     return () -> LOGGER.info("Skipping " + artifact.toString());
   }
 
+  /**
+   * Action merging jars into a single archive, see {@link MergedArchive}.
+   *
+   * @param jars      the jars, in class path order
+   * @param checksums the SHA-1 checksum of the jars
+   * @param archive   the archive
+   * @param stored    whether or not the entries are stored without compression
+   * @return the created {@link Action}
+   */
+  public static Action merge(List<File> jars, Map<File, String> checksums, File archive, boolean stored) {
+    return () -> MergedArchive.merge(jars, checksums, archive, stored);
+  }
+
   /**
    * Action removing a file.
    *
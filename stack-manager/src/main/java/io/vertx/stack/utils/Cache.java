@@ -26,9 +26,25 @@ import io.vertx.stack.resolver.ResolutionOptions;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * A cache storing the resolution result.
@@ -68,11 +84,27 @@ public class Cache {
       }
     }));
 
+  /**
+   * The default lifetime of snapshot entries: 24 hours.
+   */
+  public static final long DEFAULT_SNAPSHOT_TTL = 24 * 60 * 60 * 1000;
+
+  /**
+   * The default maximum number of entries.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 1000;
+
   private final boolean disabled;
   private final boolean disabledForSnapshot;
+  private long snapshotTtl = DEFAULT_SNAPSHOT_TTL;
+  private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+  private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
 
   List<CacheEntry> cache = new ArrayList<>();
+  private final List<CacheEntry> removed = new ArrayList<>();
   private File cacheFile;
+  private Object version;
 
 
   public Cache(boolean disabled, boolean disabledForSnapshot, File cacheFile) {
@@ -92,30 +124,195 @@ public class Cache {
 
     if (!disabled && this.cacheFile != null && this.cacheFile.isFile()) {
       LOGGER.info("Loading resolver cache from " + this.cacheFile.getAbsolutePath());
-      JavaType type = MAPPER.getTypeFactory().
-        constructCollectionType(List.class, CacheEntry.class);
-      try {
-        cache.addAll(MAPPER.readValue(this.cacheFile, type));
-      } catch (IOException e) {
-        LOGGER.error("Cannot read the cache entries from " + this.cacheFile.getAbsolutePath() + ": " + e.getMessage());
-      }
+      merge(readCacheFile());
+      evict();
     }
   }
 
+  /**
+   * Writes the cache on disk. Several processes may share the same cache file, so the file is locked, the entries
+   * written by the other processes since the last read are merged with the in-memory entries, and the result is
+   * written to a temporary file atomically moved to the cache file.
+   */
   public void writeCacheOnFile() {
     if (disabled) {
       return;
     }
     if (cacheFile != null) {
-      try {
-        MAPPER.writer().writeValue(cacheFile, cache);
-      } catch (IOException e) {
-        LOGGER.error("Cannot write the cache entries to " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+      Path path = cacheFile.toPath().toAbsolutePath();
+      Path lock = path.resolveSibling(path.getFileName() + ".lock");
+      // File locks are held by the JVM, so threads of the same process must be serialized first
+      synchronized (MONITORS.computeIfAbsent(path, p -> new Object())) {
+        try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+          FileLock fileLock = channel.lock();
+          try {
+            merge(readCacheFile());
+            evict();
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+              MAPPER.writer().writeValue(tmp.toFile(), cache);
+              move(tmp, path);
+            } finally {
+              Files.deleteIfExists(tmp);
+            }
+            removed.clear();
+            version = version(path);
+          } finally {
+            fileLock.release();
+          }
+        } catch (IOException e) {
+          LOGGER.error("Cannot write the cache entries to " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+        }
       }
     }
   }
 
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Reads the entries stored in the cache file. The file is always replaced atomically, so no lock is required.
+   *
+   * @return the entries, empty if the file does not exist or cannot be read
+   */
+  private List<CacheEntry> readCacheFile() {
+    Path path = cacheFile.toPath();
+    if (!Files.isRegularFile(path)) {
+      return Collections.emptyList();
+    }
+    JavaType type = MAPPER.getTypeFactory().
+      constructCollectionType(List.class, CacheEntry.class);
+    try {
+      Object current = version(path);
+      List<CacheEntry> entries = MAPPER.readValue(cacheFile, type);
+      version = current;
+      return entries;
+    } catch (IOException e) {
+      LOGGER.error("Cannot read the cache entries from " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Merges entries read from the cache file into the in-memory entries. For a given dependency and options, the most
+   * recently inserted entry wins. Entries removed from this cache since the last write are not brought back, unless
+   * they have been resolved again by another process.
+   *
+   * @param entries the read entries
+   */
+  private void merge(List<CacheEntry> entries) {
+    for (CacheEntry entry : entries) {
+      Optional<CacheEntry> local = find(entry.gacv, entry.options);
+      if (local.isPresent()) {
+        CacheEntry cached = local.get();
+        if (entry.insertionTime > cached.insertionTime) {
+          cached.setArtifacts(entry.artifacts).setInsertionTime(entry.insertionTime);
+        }
+        cached.setLastAccessTime(Math.max(cached.lastAccessTime, entry.lastAccessTime));
+      } else if (removed.stream().noneMatch(r -> r.hasSameKey(entry) && r.insertionTime >= entry.insertionTime)) {
+        cache.add(entry);
+      }
+    }
+  }
+
+  /**
+   * Reloads the cache file if another process has updated it since it was last read or written.
+   */
+  private void reloadIfChanged() {
+    if (cacheFile == null || !cacheFile.isFile()) {
+      return;
+    }
+    try {
+      if (!version(cacheFile.toPath()).equals(version)) {
+        LOGGER.debug("Reloading resolver cache from " + cacheFile.getAbsolutePath());
+        merge(readCacheFile());
+      }
+    } catch (IOException e) {
+      LOGGER.error("Cannot read the cache entries from " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+    }
+  }
+
+  private static Object version(Path path) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    return Arrays.asList(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey());
+  }
+
+  private void remove(CacheEntry entry) {
+    cache.remove(entry);
+    removed.add(entry);
+  }
+
+  /**
+   * Sets the lifetime of the entries of snapshot dependencies.
+   *
+   * @param snapshotTtl the lifetime in milliseconds
+   * @return the current {@link Cache} instance
+   */
+  public Cache setSnapshotTtl(long snapshotTtl) {
+    this.snapshotTtl = snapshotTtl;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of entries. When the cache is full, the least recently used entries are evicted.
+   *
+   * @param maxEntries the maximum number of entries, {@code 0} for an unbounded cache
+   * @return the current {@link Cache} instance
+   */
+  public Cache setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+    evict();
+    return this;
+  }
+
+  /**
+   * Removes the entries referencing artifact files that no longer exist.
+   *
+   * @return the number of removed entries
+   */
+  public int compact() {
+    List<CacheEntry> invalid = cache.stream().filter(entry -> !isValid(entry)).collect(Collectors.toList());
+    invalid.forEach(this::remove);
+    LOGGER.info("Resolver cache compacted, " + invalid.size() + " entries removed");
+    return invalid.size();
+  }
+
+  /**
+   * Evicts the least recently used entries until the size of the cache is under the limit.
+   */
+  private void evict() {
+    if (maxEntries <= 0 || cache.size() <= maxEntries) {
+      return;
+    }
+    List<CacheEntry> sorted = new ArrayList<>(cache);
+    sorted.sort(Comparator.comparingLong(CacheEntry::lastUsage));
+    List<CacheEntry> evicted = sorted.subList(0, cache.size() - maxEntries);
+    LOGGER.debug("Evicting " + evicted.size() + " entries from the resolver cache");
+    cache.removeAll(new HashSet<>(evicted));
+  }
+
   public List<Artifact> get(String gacv, ResolutionOptions resolutionOptions) {
+    return get(gacv, resolutionOptions, null);
+  }
+
+  /**
+   * Gets the cached resolution of a dependency. When the entry of a snapshot dependency has expired, the given
+   * revalidation function is called with the cached artifacts. If it returns {@code true}, the entry is kept and its
+   * lifetime renewed, otherwise the entry is evicted.
+   *
+   * @param gacv              the dependency
+   * @param resolutionOptions the resolution options
+   * @param revalidation      checks whether the artifacts of an expired entry are still up to date, may be
+   *                          {@code null}
+   * @return the cached artifacts, {@code null} if none
+   */
+  public List<Artifact> get(String gacv, ResolutionOptions resolutionOptions,
+                            Predicate<List<Artifact>> revalidation) {
     if (disabled) {
       return null;
     }
@@ -125,36 +322,48 @@ public class Cache {
     }
 
     Optional<CacheEntry> entry = find(gacv, resolutionOptions);
+    if (!entry.isPresent()) {
+      // Another process may have resolved it in the meantime
+      reloadIfChanged();
+      entry = find(gacv, resolutionOptions);
+    }
     if (entry.isPresent()) {
-      if (isValid(entry.get())) {
-        return entry.get().getArtifacts();
-      } else {
-        // cleanup required
-        cache.remove(entry.get());
-        return null;
+      CacheEntry cached = entry.get();
+      if (isValid(cached) && !isExpired(cached)) {
+        cached.setLastAccessTime(System.currentTimeMillis());
+        return cached.getArtifacts();
       }
+      if (isValid(cached) && revalidation != null && revalidation.test(cached.getArtifacts())) {
+        LOGGER.info("Snapshot dependency " + gacv + " has not changed since its last resolution");
+        long now = System.currentTimeMillis();
+        cached.setInsertionTime(now).setLastAccessTime(now);
+        writeCacheOnFile();
+        return cached.getArtifacts();
+      }
+      // cleanup required
+      remove(cached);
+      return null;
     }
     return null;
   }
 
   private boolean isValid(CacheEntry entry) {
-    // If valid check two aspects:
     // All artifact files must be existing and non empty
-    // If the dependency is a snapshot, it must check the insertion date.
     if (entry.getArtifacts().isEmpty()) {
       return false;
     }
 
-    if (entry.getArtifacts().stream().anyMatch(artifact -> !artifact.getFile().isFile())) {
-      return false;
-    }
+    return entry.getArtifacts().stream().allMatch(artifact -> artifact.getFile().isFile());
+  }
 
+  private boolean isExpired(CacheEntry entry) {
+    // If the dependency is a snapshot, it must check the insertion date.
     if (entry.gacv.contains("SNAPSHOT")) {
       long now = System.currentTimeMillis();
       long insertion = entry.getInsertionTime();
-      return now - insertion < 24 * 60 * 60 * 1000; // 24 hours of 60 minutes composed by 60 seconds.
+      return now - insertion >= snapshotTtl;
     }
-    return true;
+    return false;
   }
 
 
@@ -167,17 +376,20 @@ public class Cache {
       return;
     }
 
+    long now = System.currentTimeMillis();
     Optional<CacheEntry> entry = find(gacv, resolutionOptions);
     if (entry.isPresent()) {
       CacheEntry cached = entry.get();
-      cached.setInsertionTime(System.currentTimeMillis()).setArtifacts(list);
+      cached.setInsertionTime(now).setLastAccessTime(now).setArtifacts(list);
     } else {
       CacheEntry cached = new CacheEntry();
       cached.setArtifacts(list)
         .setGacv(gacv)
         .setOptions(resolutionOptions)
-        .setInsertionTime(System.currentTimeMillis());
+        .setInsertionTime(now)
+        .setLastAccessTime(now);
       cache.add(cached);
+      evict();
     }
   }
 
@@ -197,9 +409,22 @@ public class Cache {
 
     long insertionTime;
 
+    long lastAccessTime;
+
     public CacheEntry() {
     }
 
+    /**
+     * @return the last time the entry was used, entries written by older versions only have an insertion time.
+     */
+    long lastUsage() {
+      return Math.max(insertionTime, lastAccessTime);
+    }
+
+    boolean hasSameKey(CacheEntry other) {
+      return gacv.equals(other.gacv) && options.equals(other.options);
+    }
+
     public List<Artifact> getArtifacts() {
       return artifacts;
     }
@@ -227,6 +452,15 @@ public class Cache {
       return this;
     }
 
+    public long getLastAccessTime() {
+      return lastAccessTime;
+    }
+
+    public CacheEntry setLastAccessTime(long lastAccessTime) {
+      this.lastAccessTime = lastAccessTime;
+      return this;
+    }
+
     public ResolutionOptions getOptions() {
       return options;
     }
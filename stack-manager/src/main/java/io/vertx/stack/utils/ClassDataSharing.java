@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a Class Data Sharing archive for the resolved class path by running a training start of the launcher.
+ * On JDK 25+, an AOT cache ({@code -XX:AOTCacheOutput}) is generated, on older JDKs (13+) a dynamic CDS archive
+ * ({@code -XX:ArchiveClassesAtExit}).
+ * <p>
+ * The archive is bound to the class path (names and checksums of the jars, in order), the JVM and the training
+ * command. This manifest is stored as a digest next to the archive, and the archive is only regenerated when the
+ * digest changes.
+ */
+public class ClassDataSharing {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the dynamic CDS archive.
+   */
+  public static final String ARCHIVE_NAME = "vertx.jsa";
+
+  /**
+   * The name of the AOT cache.
+   */
+  public static final String AOT_CACHE_NAME = "vertx.aot";
+
+  /**
+   * The name of the file storing the digest of the manifest the archive has been generated for.
+   */
+  public static final String DIGEST_NAME = "vertx-cds.digest";
+
+  /**
+   * The name of the file receiving the output of the training run.
+   */
+  public static final String LOG_NAME = "vertx-cds.log";
+
+  private ClassDataSharing() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Generates the archive for the given class path if the class path, the JVM or the training command changed since
+   * the last generation. The launcher arguments are updated to use the archive and the exact same class path.
+   *
+   * @param directory the output directory, receiving the archive
+   * @param classpath the class path, in order
+   * @param checksums the SHA-1 checksum of the jars, the missing checksums are computed and added
+   * @param training  the training command, the main class followed by its arguments
+   * @param args      the launcher arguments, updated but not written
+   * @return the archive, {@code null} if it could not be generated
+   */
+  public static File generate(File directory, List<File> classpath, Map<File, String> checksums,
+                              List<String> training, LauncherArgs args) {
+    int feature = Runtime.version().feature();
+    if (feature < 13) {
+      LOGGER.warn("Class Data Sharing archives of the application classes require Java 13+, skipping");
+      clean(directory, args);
+      return null;
+    }
+    boolean aot = feature >= 25;
+    File archive = new File(directory, aot ? AOT_CACHE_NAME : ARCHIVE_NAME);
+    String classPath = classpath.stream().map(File::getAbsolutePath).collect(Collectors.joining(File.pathSeparator));
+    // The archive options of a previous generation must not be used by the training run.
+    args.remove("-XX:SharedArchiveFile").remove("-XX:AOTCache").set("--class-path=" + classPath);
+
+    File digestFile = new File(directory, DIGEST_NAME);
+    String digest = TrainingRun.digest(aot ? "aot" : "cds", args.getOptions(), training, classpath, checksums);
+    if (archive.isFile() && digest.equals(read(digestFile))) {
+      LOGGER.info("Class Data Sharing archive " + archive.getName() + " is up to date");
+      use(archive, aot, args);
+      return archive;
+    }
+
+    delete(new File(directory, ARCHIVE_NAME));
+    delete(new File(directory, AOT_CACHE_NAME));
+    delete(digestFile);
+    List<String> options = new ArrayList<>();
+    options.add((aot ? "-XX:AOTCacheOutput=" : "-XX:ArchiveClassesAtExit=") + archive.getAbsolutePath());
+    options.addAll(args.getOptions());
+    LOGGER.info("Generating the Class Data Sharing archive " + archive.getName() + " with " + training);
+    File log = new File(directory, LOG_NAME);
+    if (!TrainingRun.run(directory, options, training, log) || !archive.isFile()) {
+      LOGGER.warn("No Class Data Sharing archive generated, see " + log.getAbsolutePath());
+      delete(archive);
+      return null;
+    }
+    write(digestFile, digest);
+    use(archive, aot, args);
+    return archive;
+  }
+
+  /**
+   * Deletes the generated archives and removes their launcher arguments.
+   *
+   * @param directory the output directory
+   * @param args      the launcher arguments, updated but not written
+   */
+  public static void clean(File directory, LauncherArgs args) {
+    args.remove("-XX:SharedArchiveFile").remove("-XX:AOTCache");
+    delete(new File(directory, ARCHIVE_NAME));
+    delete(new File(directory, AOT_CACHE_NAME));
+    delete(new File(directory, DIGEST_NAME));
+    delete(new File(directory, LOG_NAME));
+  }
+
+  private static void use(File archive, boolean aot, LauncherArgs args) {
+    args.set((aot ? "-XX:AOTCache=" : "-XX:SharedArchiveFile=") + archive.getAbsolutePath());
+  }
+
+  private static String read(File file) {
+    try {
+      return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim() : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void write(File file, String content) {
+    try {
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private static void delete(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to delete " + file.getAbsolutePath(), e);
+    }
+  }
+}
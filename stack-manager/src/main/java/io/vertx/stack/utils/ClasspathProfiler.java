@@ -0,0 +1,178 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Orders a class path according to the classes loaded during a training run. The run logs the loaded classes and
+ * their source ({@code -Xlog:class+load}), and the jars are ordered by the number of classes they serve among the
+ * first loaded classes. Jars serving no class keep their original order, at the end of the class path.
+ * <p>
+ * The computed order is stored in the output directory ({@code vertx-classpath.profile}) with the digest of the
+ * training inputs, so the training only runs again when the class path, the JVM or the training command change.
+ */
+public class ClasspathProfiler {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the file storing the profile.
+   */
+  public static final String PROFILE_NAME = "vertx-classpath.profile";
+
+  /**
+   * The name of the file receiving the class loading log of the training run.
+   */
+  public static final String LOG_NAME = "vertx-classpath.log";
+
+  /**
+   * The default number of loaded classes taken into account.
+   */
+  public static final int DEFAULT_CLASSES = 2000;
+
+  private static final String SOURCE = " source: ";
+
+  private ClasspathProfiler() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Orders the given class path, running the training if the profile is missing or out of date.
+   *
+   * @param directory the output directory, storing the profile
+   * @param classpath the class path, in its original order
+   * @param checksums the SHA-1 checksum of the jars, the missing checksums are computed and added
+   * @param training  the training command, the main class followed by its arguments
+   * @param classes   the number of loaded classes taken into account
+   * @param options   the JVM options of the training run, without the class path
+   * @return the ordered class path, the original class path if the training failed
+   */
+  public static List<File> order(File directory, List<File> classpath, Map<File, String> checksums,
+                                 List<String> training, int classes, List<String> options) {
+    File profile = new File(directory, PROFILE_NAME);
+    String digest = TrainingRun.digest("profile " + classes, options, training, classpath, checksums);
+    List<String> stored = read(profile);
+    if (!stored.isEmpty() && stored.get(0).equals(digest)) {
+      LOGGER.info("Class path profile is up to date");
+      return apply(classpath, stored.subList(1, stored.size()));
+    }
+
+    File log = new File(directory, LOG_NAME);
+    List<String> jvmOptions = new ArrayList<>();
+    jvmOptions.add("-Xlog:class+load=info:file=" + log.getAbsolutePath() + ":none");
+    jvmOptions.addAll(options);
+    jvmOptions.add("--class-path=" + classpath.stream().map(File::getAbsolutePath)
+      .collect(Collectors.joining(File.pathSeparator)));
+    LOGGER.info("Profiling the class path with " + training);
+    // The output of the run is discarded, the class loading log is written by the JVM
+    File output = new File(directory, LOG_NAME + ".out");
+    boolean success = TrainingRun.run(directory, jvmOptions, training, output);
+    Actions.remove(output).execute();
+    if (!success || !log.isFile()) {
+      LOGGER.warn("Unable to profile the class path, keeping the resolution order");
+      Actions.remove(profile).execute();
+      return classpath;
+    }
+
+    List<String> order = profile(classpath, log, classes);
+    List<String> lines = new ArrayList<>();
+    lines.add(digest);
+    lines.addAll(order);
+    try {
+      Files.write(profile.toPath(), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write the class path profile " + profile.getAbsolutePath(), e);
+    }
+    return apply(classpath, order);
+  }
+
+  /**
+   * Computes the order of the jars from a class loading log.
+   *
+   * @param classpath the class path
+   * @param log       the class loading log, one {@code <class> source: <location>} line per loaded class
+   * @param classes   the number of loaded classes taken into account
+   * @return the jar names, ordered by number of served classes, then by first use
+   */
+  static List<String> profile(List<File> classpath, File log, int classes) {
+    Map<String, String> jars = new HashMap<>();
+    classpath.forEach(jar -> jars.put(canonical(jar), jar.getName()));
+    // Linked map: jars serving as many classes are ordered by first use
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    int loaded = 0;
+    try {
+      for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+        if (loaded == classes) {
+          break;
+        }
+        int index = line.indexOf(SOURCE);
+        if (index == -1) {
+          continue;
+        }
+        loaded++;
+        String source = line.substring(index + SOURCE.length()).trim();
+        if (source.startsWith("file:")) {
+          String jar = jars.get(canonical(new File(URI.create(source))));
+          if (jar != null) {
+            counts.merge(jar, 1, Integer::sum);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the class loading log " + log.getAbsolutePath(), e);
+    }
+    List<String> order = new ArrayList<>(counts.keySet());
+    // Stable sort: ties keep the first use order
+    order.sort((a, b) -> Integer.compare(counts.get(b), counts.get(a)));
+    LOGGER.debug("Classes served by jar among the first " + loaded + " loaded classes: " + counts);
+    return order;
+  }
+
+  private static List<File> apply(List<File> classpath, List<String> order) {
+    Map<String, File> byName = new LinkedHashMap<>();
+    classpath.forEach(jar -> byName.put(jar.getName(), jar));
+    List<File> ordered = new ArrayList<>();
+    order.stream().map(byName::remove).filter(Objects::nonNull).forEach(ordered::add);
+    ordered.addAll(byName.values());
+    return ordered;
+  }
+
+  private static String canonical(File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (IOException e) {
+      return file.getAbsolutePath();
+    }
+  }
+
+  private static List<String> read(File file) {
+    try {
+      return file.isFile() ? Files.readAllLines(file.toPath(), StandardCharsets.UTF_8) : Collections.emptyList();
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+  }
+}
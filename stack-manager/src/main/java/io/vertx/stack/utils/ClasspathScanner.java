@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Scans the jars of a class path for duplicate classes (the same class provided by several jars) and split packages
+ * (the same package provided by several jars). Only the central directories of the jars are read, in parallel.
+ * <p>
+ * The classes of each jar are cached by jar checksum in the output directory, so the jars already scanned are not
+ * opened again on the next resolution.
+ */
+public class ClasspathScanner {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the cache file, stored in the scanned directory.
+   */
+  public static final String CACHE_NAME = ".vertx-classpath-scan.json";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String VERSIONS = "META-INF/versions/";
+
+  private ClasspathScanner() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Scans the given class path.
+   *
+   * @param classpath the jars, in class path order
+   * @param checksums the SHA-1 checksum of each jar, used as cache key, the missing checksums are computed and added
+   * @param directory the directory storing the cache
+   * @return the report
+   */
+  public static Report scan(List<File> classpath, Map<File, String> checksums, File directory) {
+    File cacheFile = new File(directory, CACHE_NAME);
+    Map<String, List<String>> cache = readCache(cacheFile);
+    List<String> keys = classpath.stream()
+      .map(jar -> checksums.computeIfAbsent(jar, Checksums::sha1))
+      .collect(Collectors.toList());
+    List<List<String>> classes = new ArrayList<>(Collections.nCopies(classpath.size(), null));
+    List<Integer> misses = new ArrayList<>();
+    for (int i = 0; i < classpath.size(); i++) {
+      classes.set(i, cache.get(keys.get(i)));
+      if (classes.get(i) == null) {
+        misses.add(i);
+      }
+    }
+    misses.parallelStream().forEach(i -> classes.set(i, classes(classpath.get(i))));
+    LOGGER.debug("Scanned " + misses.size() + " jars, " + (classpath.size() - misses.size()) + " loaded from cache");
+
+    Report report = new Report();
+    Map<String, String> classOwners = new HashMap<>();
+    Map<String, Set<String>> packageOwners = new TreeMap<>();
+    for (int i = 0; i < classpath.size(); i++) {
+      String jar = classpath.get(i).getName();
+      for (String clazz : classes.get(i)) {
+        String owner = classOwners.putIfAbsent(clazz, jar);
+        if (owner != null && !owner.equals(jar)) {
+          report.duplicates.computeIfAbsent(clazz, c -> new ArrayList<>(Collections.singletonList(owner))).add(jar);
+        }
+        int index = clazz.lastIndexOf('.');
+        packageOwners.computeIfAbsent(index == -1 ? "" : clazz.substring(0, index), p -> new LinkedHashSet<>())
+          .add(jar);
+      }
+    }
+    packageOwners.forEach((pkg, jars) -> {
+      if (jars.size() > 1) {
+        report.splitPackages.put(pkg, new ArrayList<>(jars));
+      }
+    });
+
+    // Only keep the jars of the current class path in the cache
+    Map<String, List<String>> updated = new HashMap<>();
+    for (int i = 0; i < classpath.size(); i++) {
+      updated.put(keys.get(i), classes.get(i));
+    }
+    if (!misses.isEmpty() || !updated.keySet().equals(cache.keySet())) {
+      writeCache(cacheFile, updated);
+    }
+    return report;
+  }
+
+  private static List<String> classes(File jar) {
+    List<String> classes = new ArrayList<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(".class") && !name.startsWith(VERSIONS) && !name.endsWith("module-info.class")) {
+          classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read the content of " + jar.getAbsolutePath(), e);
+    }
+    return classes;
+  }
+
+  private static Map<String, List<String>> readCache(File file) {
+    if (!file.isFile()) {
+      return Collections.emptyMap();
+    }
+    try {
+      return MAPPER.readValue(file, new TypeReference<Map<String, List<String>>>() {
+      });
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring the invalid class path scan cache " + file.getAbsolutePath());
+      return Collections.emptyMap();
+    }
+  }
+
+  private static void writeCache(File file, Map<String, List<String>> cache) {
+    try {
+      MAPPER.writeValue(file, cache);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the class path scan cache " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * The result of a scan.
+   */
+  public static class Report {
+
+    private final Map<String, List<String>> duplicates = new TreeMap<>();
+    private final Map<String, List<String>> splitPackages = new TreeMap<>();
+
+    /**
+     * @return the duplicate classes, associated with the jars providing them, empty if none.
+     */
+    public Map<String, List<String>> getDuplicateClasses() {
+      return duplicates;
+    }
+
+    /**
+     * @return the split packages, associated with the jars providing them, empty if none.
+     */
+    public Map<String, List<String>> getSplitPackages() {
+      return splitPackages;
+    }
+
+    /**
+     * Describes the duplicate classes, grouped by set of jars, and the split packages not caused by duplicate
+     * classes.
+     *
+     * @return the lines of the description, empty if the class path is clean
+     */
+    public List<String> describe() {
+      Map<List<String>, List<String>> byJars = new LinkedHashMap<>();
+      duplicates.forEach((clazz, jars) -> byJars.computeIfAbsent(jars, j -> new ArrayList<>()).add(clazz));
+      List<String> lines = new ArrayList<>();
+      byJars.forEach((jars, classes) -> lines.add(classes.size() + " duplicate classes in " + jars
+        + " (e.g. " + classes.get(0) + ")"));
+      Set<String> duplicatedPackages = duplicates.keySet().stream()
+        .map(clazz -> clazz.lastIndexOf('.') == -1 ? "" : clazz.substring(0, clazz.lastIndexOf('.')))
+        .collect(Collectors.toSet());
+      splitPackages.forEach((pkg, jars) -> {
+        if (!duplicatedPackages.contains(pkg)) {
+          lines.add("Package " + (pkg.isEmpty() ? "<default>" : pkg) + " split across " + jars);
+        }
+      });
+      return lines;
+    }
+  }
+}
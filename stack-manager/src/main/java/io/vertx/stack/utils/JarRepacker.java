@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Repacks jars into their uncompressed ({@code STORED}) form, so reading their entries does not require inflating
+ * them. The entries are copied in order, with their exact content, so signed jars stay valid: the signature files
+ * only cover the content of the entries, not their compression.
+ * <p>
+ * Repacked jars are cached by checksum of the original jar, so each jar version is only repacked once.
+ */
+public class JarRepacker {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  private JarRepacker() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Gets the repacked version of a jar from the cache, repacking it if not cached yet.
+   *
+   * @param jar   the jar
+   * @param sha1  the SHA-1 checksum of the jar
+   * @param cache the cache directory
+   * @return the repacked jar, named as the original jar
+   */
+  public static File stored(File jar, String sha1, File cache) {
+    File output = new File(new File(cache, sha1), jar.getName());
+    if (!output.isFile()) {
+      LOGGER.debug("Repacking " + jar.getName() + " without compression");
+      repack(jar, output);
+    }
+    return output;
+  }
+
+  /**
+   * Repacks a jar without compression.
+   *
+   * @param source the jar
+   * @param output the output file, written atomically
+   */
+  public static void repack(File source, File output) {
+    try {
+      Files.createDirectories(output.getParentFile().toPath());
+      Path temp = Files.createTempFile(output.getParentFile().toPath(), output.getName(), ".tmp");
+      try {
+        write(source, temp);
+        try {
+          Files.move(temp, output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to repack " + source.getAbsolutePath(), e);
+    }
+  }
+
+  private static void write(File source, Path temp) throws IOException {
+    try (ZipFile zip = new ZipFile(source);
+         ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.setMethod(ZipOutputStream.STORED);
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        byte[] content;
+        try (InputStream in = zip.getInputStream(entry)) {
+          content = in.readAllBytes();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry stored = new ZipEntry(entry.getName());
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(content.length);
+        stored.setCompressedSize(content.length);
+        stored.setCrc(crc.getValue());
+        stored.setTime(entry.getTime());
+        stored.setComment(entry.getComment());
+        out.putNextEntry(stored);
+        out.write(content);
+        out.closeEntry();
+      }
+      if (zip.getComment() != null) {
+        out.setComment(zip.getComment());
+      }
+    }
+  }
+
+  /**
+   * Checks whether all the entries of the given jar are stored without compression.
+   *
+   * @param jar the jar
+   * @return {@code true} if the jar is not compressed
+   */
+  public static boolean isStored(File jar) {
+    try (ZipFile zip = new ZipFile(jar)) {
+      return zip.stream().allMatch(entry -> entry.getMethod() == ZipEntry.STORED);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read " + jar.getAbsolutePath(), e);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages the JVM options generated by the stack resolution, stored in a Java launcher argument file
+ * ({@code vertx-launcher.args}) in the output directory. Each option is identified by its name, the part before the
+ * {@code =} sign for system properties and {@code -XX:} options, so setting an option replaces its previous value.
+ * <p>
+ * The file is only written when an opt-in feature needs JVM options (the extraction of the native libraries, the
+ * Class Data Sharing archive or the ordering of the class path), and is deleted otherwise. The launcher scripts do
+ * not read it: the JVM must be started with it, for instance
+ * {@code java @lib/vertx-launcher.args io.vertx.core.Launcher run ...}.
+ */
+public class LauncherArgs {
+
+  /**
+   * The name of the argument file.
+   */
+  public static final String FILE_NAME = "vertx-launcher.args";
+
+  private final File file;
+  private final Map<String, String> options = new LinkedHashMap<>();
+
+  private LauncherArgs(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Loads the argument file of the given directory. The file does not need to exist.
+   *
+   * @param directory the directory
+   * @return the loaded {@link LauncherArgs}
+   */
+  public static LauncherArgs load(File directory) {
+    LauncherArgs args = new LauncherArgs(new File(directory, FILE_NAME));
+    if (args.file.isFile()) {
+      try {
+        for (String line : Files.readAllLines(args.file.toPath(), StandardCharsets.UTF_8)) {
+          String option = unquote(line.trim());
+          if (!option.isEmpty() && !option.startsWith("#")) {
+            args.options.put(name(option), option);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot read the launcher arguments from " + args.file.getAbsolutePath(), e);
+      }
+    }
+    return args;
+  }
+
+  /**
+   * Sets an option, replacing the option with the same name if any.
+   *
+   * @param option the option, such as {@code -Dkey=value}
+   * @return the current {@link LauncherArgs} instance
+   */
+  public LauncherArgs set(String option) {
+    options.put(name(option), option);
+    return this;
+  }
+
+  /**
+   * Removes the option with the given name.
+   *
+   * @param name the name of the option, such as {@code -Dkey}
+   * @return the current {@link LauncherArgs} instance
+   */
+  public LauncherArgs remove(String name) {
+    options.remove(name);
+    return this;
+  }
+
+  /**
+   * @return the options, in insertion order.
+   */
+  public List<String> getOptions() {
+    return new ArrayList<>(options.values());
+  }
+
+  /**
+   * @return the argument file.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes the argument file, or deletes it when there is no option.
+   */
+  public void write() {
+    try {
+      if (options.isEmpty()) {
+        Files.deleteIfExists(file.toPath());
+        return;
+      }
+      List<String> lines = new ArrayList<>();
+      lines.add("# Generated by the vert.x stack manager - do not edit");
+      options.values().forEach(option -> lines.add(quote(option)));
+      Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot write the launcher arguments to " + file.getAbsolutePath(), e);
+    }
+  }
+
+  private static String name(String option) {
+    int index = option.indexOf('=');
+    return index == -1 ? option : option.substring(0, index);
+  }
+
+  private static String quote(String option) {
+    if (option.indexOf(' ') == -1 && option.indexOf('\\') == -1) {
+      return option;
+    }
+    return "\"" + option.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static String unquote(String line) {
+    if (line.length() < 2 || !line.startsWith("\"") || !line.endsWith("\"")) {
+      return line;
+    }
+    return line.substring(1, line.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.stack.launcher.ServiceRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Merges a set of jars into a single archive ({@code vertx-stack-merged.jar}), so the JVM opens and parses a single
+ * central directory instead of one per jar.
+ * <p>
+ * Conflicts are handled deterministically:
+ * <ul>
+ * <li>an entry provided by several jars is taken from the first jar, in class path order, and a warning is emitted
+ * when the contents differ,</li>
+ * <li>the service provider configuration files ({@code META-INF/services/*}) are merged, as done by
+ * {@link ServiceRegistry},</li>
+ * <li>the manifests are replaced by a generated manifest, the manifest of each jar being kept in
+ * {@code META-INF/vertx-stack/<jar name>/MANIFEST.MF} for traceability,</li>
+ * <li>the signature files, jar indexes and module descriptors are dropped, as they are not valid for the merged
+ * archive.</li>
+ * </ul>
+ * The archive contains an index ({@code META-INF/vertx-stack/artifacts.idx}) listing, for each jar, its name, its
+ * checksum and the entries taken from it. When the archive is merged again, only the entries whose jar changed are
+ * rewritten, the other entries being copied as they are.
+ */
+public class MergedArchive {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The name of the merged archive.
+   */
+  public static final String FILE_NAME = "vertx-stack-merged.jar";
+
+  /**
+   * The directory containing the metadata of the merged archive.
+   */
+  public static final String METADATA = "META-INF/vertx-stack/";
+
+  /**
+   * The index listing the entries taken from each jar.
+   */
+  public static final String INDEX = METADATA + "artifacts.idx";
+
+  private static final String HEADER = "MergedArchive-Version: 1.0";
+  private static final FileTime TIME = FileTime.fromMillis(315964800000L);
+
+  private final List<String> conflicts = new ArrayList<>();
+  private int written;
+  private int removed;
+
+  private MergedArchive() {
+  }
+
+  /**
+   * Merges the given jars into the given archive. If the archive exists, it is updated incrementally.
+   *
+   * @param jars      the jars, in class path order
+   * @param checksums the SHA-1 checksum of the jars, the missing checksums are computed and added
+   * @param archive   the archive
+   * @param stored    whether or not the entries are stored without compression
+   * @return the merge report
+   */
+  public static MergedArchive merge(List<File> jars, Map<File, String> checksums, File archive, boolean stored) {
+    jars.parallelStream()
+      .filter(jar -> !checksums.containsKey(jar))
+      .collect(Collectors.toMap(jar -> jar, Checksums::sha1))
+      .forEach(checksums::put);
+    // The central directories are read in parallel, the merge keeps the class path order.
+    List<Content> contents = jars.parallelStream().map(Content::new).collect(Collectors.toList());
+
+    MergedArchive merge = new MergedArchive();
+    Map<String, Integer> owners = merge.owners(jars, contents);
+    Map<String, byte[]> generated = generate(jars, checksums, contents, owners);
+    Map<String, byte[]> existing = archive.isFile() ? generated(archive) : Collections.emptyMap();
+    if (equals(generated, existing)) {
+      LOGGER.debug("The merged archive " + archive.getName() + " is up to date");
+      return merge;
+    }
+    Map<String, String> previous = existing.containsKey(INDEX) ? parse(existing.get(INDEX)) : null;
+    if (previous == null && archive.isFile()) {
+      // Not created by this class, rebuilt from scratch
+      Actions.remove(archive).execute();
+    }
+    merge.write(jars, checksums, owners, generated, previous == null ? Collections.emptyMap() : previous,
+      existing.keySet(), archive, stored);
+    LOGGER.info("Merged archive " + archive.getName() + " updated: " + merge.written + " entries written, "
+      + merge.removed + " entries removed");
+    return merge;
+  }
+
+  /**
+   * Computes the jar providing each entry of the archive, and reports the entries shadowed with a different content.
+   */
+  private Map<String, Integer> owners(List<File> jars, List<Content> contents) {
+    Map<String, Integer> owners = new LinkedHashMap<>();
+    Map<String, List<String>> shadowed = new LinkedHashMap<>();
+    for (int i = 0; i < jars.size(); i++) {
+      for (Map.Entry<String, Long> entry : contents.get(i).crcs.entrySet()) {
+        Integer owner = owners.putIfAbsent(entry.getKey(), i);
+        if (owner != null && !entry.getValue().equals(contents.get(owner).crcs.get(entry.getKey()))) {
+          shadowed.computeIfAbsent(jars.get(i).getName() + " shadowed by " + jars.get(owner).getName(),
+            pair -> new ArrayList<>()).add(entry.getKey());
+        }
+      }
+    }
+    shadowed.forEach((pair, entries) -> conflicts.add(entries.size() + " entries of " + pair
+      + " with a different content (e.g. " + entries.get(0) + ")"));
+    conflicts.forEach(LOGGER::warn);
+    return owners;
+  }
+
+  /**
+   * Computes the generated entries: the manifest, the merged service files, the manifests of the jars and the index.
+   */
+  private static Map<String, byte[]> generate(List<File> jars, Map<File, String> checksums, List<Content> contents,
+                                              Map<String, Integer> owners) {
+    Map<String, byte[]> generated = new TreeMap<>();
+    StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\r\nCreated-By: vertx-stack-manager\r\n");
+    if (contents.stream().anyMatch(content -> content.multiRelease)) {
+      manifest.append("Multi-Release: true\r\n");
+    }
+    generated.put(JarFile.MANIFEST_NAME, manifest.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+
+    ServiceRegistry registry = ServiceRegistry.build(jars);
+    for (String service : registry.getServices()) {
+      generated.put(ServiceRegistry.SERVICES + service,
+        (String.join("\n", registry.getProviders(service)) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    List<List<String>> entries = new ArrayList<>();
+    jars.forEach(jar -> entries.add(new ArrayList<>()));
+    owners.forEach((entry, owner) -> entries.get(owner).add(entry));
+    StringBuilder index = new StringBuilder(HEADER).append("\n\n");
+    for (int i = 0; i < jars.size(); i++) {
+      String name = jars.get(i).getName();
+      if (contents.get(i).manifest != null) {
+        generated.put(METADATA + name + "/MANIFEST.MF", contents.get(i).manifest);
+      }
+      index.append(name).append(' ').append(checksums.get(jars.get(i))).append('\n');
+      entries.get(i).forEach(entry -> index.append(entry).append('\n'));
+      index.append('\n');
+    }
+    generated.put(INDEX, index.toString().getBytes(StandardCharsets.UTF_8));
+    return generated;
+  }
+
+  private static boolean isGenerated(String name) {
+    return name.equals(JarFile.MANIFEST_NAME) || name.startsWith(ServiceRegistry.SERVICES)
+      || name.startsWith(METADATA);
+  }
+
+  /**
+   * Checks whether an entry of a jar is dropped from the merged archive.
+   */
+  private static boolean isDropped(String name) {
+    if (isGenerated(name) || name.equals("META-INF/INDEX.LIST") || name.endsWith("module-info.class")) {
+      return true;
+    }
+    if (name.startsWith("META-INF/") && name.indexOf('/', "META-INF/".length()) == -1) {
+      String file = name.substring("META-INF/".length()).toUpperCase(Locale.ROOT);
+      return file.endsWith(".SF") || file.endsWith(".RSA") || file.endsWith(".DSA") || file.endsWith(".EC")
+        || file.startsWith("SIG-");
+    }
+    return false;
+  }
+
+  /**
+   * Reads the generated entries of an existing archive.
+   */
+  private static Map<String, byte[]> generated(File archive) {
+    Map<String, byte[]> generated = new TreeMap<>();
+    try (ZipFile zip = new ZipFile(archive)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory() && isGenerated(entry.getName())) {
+          try (InputStream in = zip.getInputStream(entry)) {
+            generated.put(entry.getName(), in.readAllBytes());
+          }
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read the merged archive " + archive.getAbsolutePath() + ", rebuilding it", e);
+      return Collections.emptyMap();
+    }
+    return generated;
+  }
+
+  private static boolean equals(Map<String, byte[]> a, Map<String, byte[]> b) {
+    return a.size() == b.size()
+      && a.entrySet().stream().allMatch(entry -> Arrays.equals(entry.getValue(), b.get(entry.getKey())));
+  }
+
+  /**
+   * Parses an index.
+   *
+   * @return the map entry -> {@code <jar name> <checksum>} of the jar providing it, {@code null} if invalid
+   */
+  private static Map<String, String> parse(byte[] index) {
+    String[] lines = new String(index, StandardCharsets.UTF_8).split("\n");
+    if (lines.length == 0 || !lines[0].equals(HEADER)) {
+      return null;
+    }
+    Map<String, String> owners = new HashMap<>();
+    String jar = null;
+    for (int i = 1; i < lines.length; i++) {
+      if (lines[i].isEmpty()) {
+        jar = null;
+      } else if (jar == null) {
+        jar = lines[i];
+      } else {
+        owners.put(lines[i], jar);
+      }
+    }
+    return owners;
+  }
+
+  private void write(List<File> jars, Map<File, String> checksums, Map<String, Integer> owners,
+                     Map<String, byte[]> generated, Map<String, String> previous, Set<String> previouslyGenerated,
+                     File archive, boolean stored) {
+    Map<String, String> env = new HashMap<>();
+    env.put("create", "true");
+    env.put("noCompression", Boolean.toString(stored));
+    URI uri = URI.create("jar:" + archive.getAbsoluteFile().toURI());
+    try (FileSystem fs = FileSystems.newFileSystem(uri, env)) {
+      // Remove the entries whose jar changed or that are not provided anymore
+      Set<String> kept = new HashSet<>();
+      for (Map.Entry<String, String> entry : previous.entrySet()) {
+        Integer owner = owners.get(entry.getKey());
+        if (owner != null && entry.getValue().equals(owner(jars, checksums, owner))) {
+          kept.add(entry.getKey());
+        } else {
+          Files.deleteIfExists(fs.getPath(entry.getKey()));
+          removed++;
+        }
+      }
+      for (String name : previouslyGenerated) {
+        if (!generated.containsKey(name)) {
+          Files.deleteIfExists(fs.getPath(name));
+        }
+      }
+
+      // Copy the new entries, opening each changed jar once
+      Map<Integer, List<String>> added = new TreeMap<>();
+      owners.forEach((entry, owner) -> {
+        if (!kept.contains(entry)) {
+          added.computeIfAbsent(owner, k -> new ArrayList<>()).add(entry);
+        }
+      });
+      for (Map.Entry<Integer, List<String>> entries : added.entrySet()) {
+        try (ZipFile zip = new ZipFile(jars.get(entries.getKey()))) {
+          for (String name : entries.getValue()) {
+            ZipEntry entry = zip.getEntry(name);
+            try (InputStream in = zip.getInputStream(entry)) {
+              write(fs.getPath(name), in.readAllBytes(), FileTime.fromMillis(entry.getTime()));
+            }
+            written++;
+          }
+        }
+      }
+      for (Map.Entry<String, byte[]> entry : generated.entrySet()) {
+        write(fs.getPath(entry.getKey()), entry.getValue(), TIME);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write the merged archive " + archive.getAbsolutePath(), e);
+    }
+  }
+
+  private static String owner(List<File> jars, Map<File, String> checksums, int owner) {
+    return jars.get(owner).getName() + " " + checksums.get(jars.get(owner));
+  }
+
+  private static void write(Path path, byte[] content, FileTime time) throws IOException {
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Files.write(path, content);
+    Files.setLastModifiedTime(path, time);
+  }
+
+  /**
+   * @return the diagnostics of the entries provided by several jars with different contents, empty if none.
+   */
+  public List<String> getConflicts() {
+    return Collections.unmodifiableList(conflicts);
+  }
+
+  /**
+   * @return the number of entries copied from the jars by the last merge.
+   */
+  public int getWritten() {
+    return written;
+  }
+
+  /**
+   * @return the number of entries removed from the archive by the last merge.
+   */
+  public int getRemoved() {
+    return removed;
+  }
+
+  /**
+   * The central directory of a jar: the CRC of its merged entries, in order, and its manifest.
+   */
+  private static class Content {
+
+    private final Map<String, Long> crcs = new LinkedHashMap<>();
+    private byte[] manifest;
+    private boolean multiRelease;
+
+    private Content(File jar) {
+      try (ZipFile zip = new ZipFile(jar)) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          if (entry.getName().equals(JarFile.MANIFEST_NAME)) {
+            try (InputStream in = zip.getInputStream(entry)) {
+              manifest = in.readAllBytes();
+            }
+            Attributes attributes = new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes();
+            multiRelease = "true".equalsIgnoreCase(attributes.getValue("Multi-Release"));
+          } else if (!entry.isDirectory() && !isDropped(entry.getName())) {
+            crcs.put(entry.getName(), entry.getCrc());
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read the content of " + jar.getAbsolutePath(), e);
+      }
+    }
+  }
+}
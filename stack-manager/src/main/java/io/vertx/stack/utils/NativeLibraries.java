@@ -0,0 +1,188 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts the native libraries embedded in the resolved jars, such as the ones of {@code netty-tcnative} or of the
+ * native transports, into a platform specific directory ({@code native/<os>-<arch>}). Netty first tries to load its
+ * native libraries from {@code java.library.path}, so pointing this property to the extraction directory avoids the
+ * extraction into a temporary directory on every start.
+ */
+public class NativeLibraries {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The location of the native libraries in the jar files, as defined by Netty.
+   */
+  public static final String NATIVE_RESOURCE_HOME = "META-INF/native/";
+
+  /**
+   * The name of the directory containing the extracted libraries, relative to the output directory.
+   */
+  public static final String NATIVE_DIRECTORY = "native";
+
+  private NativeLibraries() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Gets the directory receiving the native libraries of the current platform.
+   *
+   * @param directory the output directory
+   * @return the native library directory
+   */
+  public static File directory(File directory) {
+    return new File(new File(directory, NATIVE_DIRECTORY), Platform.classifier());
+  }
+
+  /**
+   * Extracts the native libraries of the current platform from the given jar files. Libraries already extracted with
+   * the same size (or the same content when the size is not known) are not rewritten, and the libraries no longer
+   * provided by the jars are deleted.
+   *
+   * @param jars      the jar files
+   * @param directory the output directory, the libraries are extracted into {@code native/<os>-<arch>}
+   * @return the extracted libraries, empty if none
+   */
+  public static List<File> extract(Collection<File> jars, File directory) {
+    return extract(jars, directory, Platform.os(), Platform.arch());
+  }
+
+  static List<File> extract(Collection<File> jars, File directory, String os, String arch) {
+    File output = new File(new File(directory, NATIVE_DIRECTORY), os + "-" + arch);
+    Set<String> names = new LinkedHashSet<>();
+    List<File> extracted = new ArrayList<>();
+    for (File jar : jars) {
+      if (jar == null || !jar.isFile() || !jar.getName().endsWith(".jar")) {
+        continue;
+      }
+      try (ZipFile zip = new ZipFile(jar)) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          String name = libraryName(entry);
+          if (name == null || !isForPlatform(name, os, arch) || !names.add(name)) {
+            continue;
+          }
+          File file = new File(output, name);
+          if (!isUpToDate(zip, entry, file)) {
+            write(zip, entry, file);
+            LOGGER.debug("Native library " + name + " extracted from " + jar.getName());
+          }
+          extracted.add(file);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to extract the native libraries from " + jar.getAbsolutePath(), e);
+      }
+    }
+
+    File[] existing = output.listFiles();
+    if (existing != null) {
+      for (File file : existing) {
+        if (!names.contains(file.getName())) {
+          LOGGER.debug("Deleting native library " + file.getName());
+          Actions.remove(file).execute();
+        }
+      }
+    }
+    if (!extracted.isEmpty()) {
+      LOGGER.info(extracted.size() + " native libraries extracted to " + output.getAbsolutePath());
+    }
+    return extracted;
+  }
+
+  /**
+   * Checks whether the given file has already been extracted from the given entry. The sizes are compared when the
+   * entry declares its size, otherwise the CRC of the file or the content of the entry are compared.
+   */
+  private static boolean isUpToDate(ZipFile zip, ZipEntry entry, File file) throws IOException {
+    if (!file.isFile()) {
+      return false;
+    }
+    if (entry.getSize() >= 0) {
+      return file.length() == entry.getSize();
+    }
+    if (entry.getCrc() >= 0) {
+      CRC32 crc = new CRC32();
+      crc.update(Files.readAllBytes(file.toPath()));
+      return crc.getValue() == entry.getCrc();
+    }
+    try (InputStream in = zip.getInputStream(entry)) {
+      return Arrays.equals(in.readAllBytes(), Files.readAllBytes(file.toPath()));
+    }
+  }
+
+  private static String libraryName(ZipEntry entry) {
+    String path = entry.getName();
+    if (entry.isDirectory() || !path.startsWith(NATIVE_RESOURCE_HOME)) {
+      return null;
+    }
+    String name = path.substring(NATIVE_RESOURCE_HOME.length());
+    return name.isEmpty() || name.contains("/") ? null : name;
+  }
+
+  /**
+   * Checks whether the given library targets the given platform. The extension must match the operating system, and
+   * the name must contain the architecture, as done by Netty ({@code libnetty_tcnative_linux_x86_64.so}). Libraries
+   * naming another operating system are ignored.
+   */
+  static boolean isForPlatform(String name, String os, String arch) {
+    String lower = name.toLowerCase(Locale.US);
+    if (!lower.contains(arch)) {
+      return false;
+    }
+    for (String other : Platform.osNames()) {
+      if (!other.equals(os) && lower.contains("_" + other + "_")) {
+        return false;
+      }
+    }
+    switch (os) {
+      case "windows":
+        return lower.endsWith(".dll");
+      case "osx":
+        return lower.endsWith(".jnilib") || lower.endsWith(".dylib");
+      default:
+        return lower.endsWith(".so");
+    }
+  }
+
+  private static void write(ZipFile zip, ZipEntry entry, File file) throws IOException {
+    Files.createDirectories(file.getParentFile().toPath());
+    // Write to a temporary file first, so a running JVM never sees a partially written library.
+    Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+    try (InputStream in = zip.getInputStream(entry)) {
+      Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Detects the current operating system and architecture. The names are normalized as done by the
+ * {@code os-maven-plugin}, which is also the convention used by the native artifacts of Netty, e.g.
+ * {@code linux-x86_64} or {@code osx-aarch_64}.
+ */
+public class Platform {
+
+  /**
+   * The name of the filtering variable containing the operating system name.
+   */
+  public static final String OS_NAME_VARIABLE = "os.detected.name";
+
+  /**
+   * The name of the filtering variable containing the architecture.
+   */
+  public static final String OS_ARCH_VARIABLE = "os.detected.arch";
+
+  /**
+   * The name of the filtering variable containing the classifier of the current platform.
+   */
+  public static final String OS_CLASSIFIER_VARIABLE = "os.detected.classifier";
+
+  private static final List<String> OS_NAMES = Arrays.asList("linux", "osx", "windows", "freebsd", "openbsd", "sunos",
+    "aix");
+
+  private Platform() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * @return the normalized name of the current operating system: {@code linux}, {@code osx}, {@code windows},
+   * {@code freebsd}, ... or {@code unknown}.
+   */
+  public static String os() {
+    return normalizeOs(System.getProperty("os.name"));
+  }
+
+  /**
+   * @return the normalized name of the current architecture: {@code x86_64}, {@code x86_32}, {@code aarch_64}, ...
+   * or {@code unknown}.
+   */
+  public static String arch() {
+    return normalizeArch(System.getProperty("os.arch"));
+  }
+
+  /**
+   * @return the classifier of the current platform, {@code <os>-<arch>}.
+   */
+  public static String classifier() {
+    return os() + "-" + arch();
+  }
+
+  /**
+   * Checks whether the given classifier denotes a platform, i.e. starts with an operating system name followed by an
+   * architecture, such as {@code linux-x86_64} or {@code linux-x86_64-fedora}.
+   *
+   * @param classifier the classifier, may be {@code null}
+   * @return {@code true} if the classifier is platform specific
+   */
+  public static boolean isPlatformClassifier(String classifier) {
+    if (classifier == null) {
+      return false;
+    }
+    int index = classifier.indexOf('-');
+    return index > 0 && index < classifier.length() - 1 && OS_NAMES.contains(classifier.substring(0, index));
+  }
+
+  /**
+   * Checks whether an artifact with the given classifier can be used on the given platform. Classifiers that are
+   * not platform specific match any platform.
+   *
+   * @param classifier the classifier of the artifact, may be {@code null}
+   * @param platform   the platform classifier, such as {@code linux-x86_64}
+   * @return {@code true} if the artifact can be used on the platform
+   */
+  public static boolean matches(String classifier, String platform) {
+    return !isPlatformClassifier(classifier) || classifier.equals(platform) || classifier.startsWith(platform + "-");
+  }
+
+  /**
+   * @return the names of the known operating systems.
+   */
+  static List<String> osNames() {
+    return OS_NAMES;
+  }
+
+  static String normalizeOs(String value) {
+    String name = normalize(value);
+    if (name.startsWith("linux")) {
+      return "linux";
+    }
+    if (name.startsWith("macosx") || name.startsWith("osx") || name.startsWith("darwin")) {
+      return "osx";
+    }
+    if (name.startsWith("windows")) {
+      return "windows";
+    }
+    if (name.startsWith("freebsd")) {
+      return "freebsd";
+    }
+    if (name.startsWith("openbsd")) {
+      return "openbsd";
+    }
+    if (name.startsWith("sunos") || name.startsWith("solaris")) {
+      return "sunos";
+    }
+    if (name.startsWith("aix")) {
+      return "aix";
+    }
+    return "unknown";
+  }
+
+  static String normalizeArch(String value) {
+    String arch = normalize(value);
+    switch (arch) {
+      case "x8664":
+      case "amd64":
+      case "ia32e":
+      case "em64t":
+      case "x64":
+        return "x86_64";
+      case "x8632":
+      case "x86":
+      case "i386":
+      case "i486":
+      case "i586":
+      case "i686":
+      case "ia32":
+      case "x32":
+        return "x86_32";
+      case "aarch64":
+      case "arm64":
+        return "aarch_64";
+      case "arm":
+      case "arm32":
+        return "arm_32";
+      case "ppc64le":
+        return "ppcle_64";
+      case "ppc64":
+        return "ppc_64";
+      case "s390x":
+        return "s390_64";
+      case "riscv64":
+        return "riscv64";
+      default:
+        return "unknown";
+    }
+  }
+
+  private static String normalize(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.toLowerCase(Locale.US).replaceAll("[^a-z0-9]+", "");
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import io.vertx.core.internal.logging.Logger;
+import io.vertx.core.internal.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a training start of the launcher on the resolved class path, in a separate JVM. Training runs are used to
+ * record the classes loaded at startup, to generate a Class Data Sharing archive or to order the class path.
+ */
+public class TrainingRun {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger("Stack Resolver");
+
+  /**
+   * The default training command: the main class of the launcher, followed by its arguments.
+   */
+  public static final List<String> DEFAULT_COMMAND = Collections.unmodifiableList(
+    Arrays.asList("io.vertx.core.Launcher", "version"));
+
+  private static final long TIMEOUT_MINUTES = 10;
+
+  private TrainingRun() {
+    // Avoid direct instantiation
+  }
+
+  /**
+   * Runs the training command, with the current JVM.
+   *
+   * @param directory  the working directory
+   * @param jvmOptions the JVM options, including the class path
+   * @param command    the training command, the main class followed by its arguments
+   * @param log        the file receiving the output of the run
+   * @return {@code true} if the run completed successfully, {@code false} otherwise
+   */
+  public static boolean run(File directory, List<String> jvmOptions, List<String> command, File log) {
+    List<String> line = new ArrayList<>();
+    line.add(javaExecutable());
+    line.addAll(jvmOptions);
+    line.addAll(command);
+    try {
+      Process process = new ProcessBuilder(line)
+        .directory(directory)
+        .redirectErrorStream(true)
+        .redirectOutput(log)
+        .start();
+      if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+        process.destroyForcibly();
+        LOGGER.warn("The training run did not complete in " + TIMEOUT_MINUTES + " minutes, see "
+          + log.getAbsolutePath());
+        return false;
+      }
+      if (process.exitValue() != 0) {
+        LOGGER.warn("The training run failed (exit code " + process.exitValue() + "), see " + log.getAbsolutePath());
+        return false;
+      }
+      return true;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to launch the training run: " + e.getMessage());
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Computes the digest of the inputs of a training run: the JVM, the JVM options, the training command and the
+   * class path (names and checksums of the jars, in order).
+   *
+   * @param kind       the kind of training, distinguishing the outputs generated by a run
+   * @param jvmOptions the JVM options
+   * @param command    the training command
+   * @param classpath  the class path
+   * @param checksums  the SHA-1 checksum of the jars, the missing checksums are computed and added
+   * @return the digest
+   */
+  public static String digest(String kind, List<String> jvmOptions, List<String> command, List<File> classpath,
+                              Map<File, String> checksums) {
+    StringBuilder manifest = new StringBuilder();
+    manifest.append(System.getProperty("java.vm.vendor")).append(' ')
+      .append(System.getProperty("java.vm.version")).append(' ').append(kind).append('\n');
+    jvmOptions.forEach(option -> manifest.append(option).append('\n'));
+    command.forEach(arg -> manifest.append(arg).append('\n'));
+    // Missing checksums are computed in parallel, the manifest keeps the class path order.
+    classpath.parallelStream()
+      .filter(file -> !checksums.containsKey(file))
+      .collect(Collectors.toMap(file -> file, Checksums::sha1))
+      .forEach(checksums::put);
+    classpath.forEach(file -> manifest.append(file.getName()).append(' ').append(checksums.get(file)).append('\n'));
+    return Checksums.sha1(manifest.toString());
+  }
+
+  private static String javaExecutable() {
+    File bin = new File(System.getProperty("java.home"), "bin");
+    File java = new File(bin, "java.exe");
+    return java.isFile() ? java.getAbsolutePath() : new File(bin, "java").getAbsolutePath();
+  }
+}
@@ -21,6 +21,7 @@ import io.vertx.core.Launcher;
 import io.vertx.core.impl.launcher.VertxCommandLauncher;
 import io.vertx.core.spi.launcher.ExecutionContext;
 import io.vertx.stack.command.ResolveCommand;
+import io.vertx.stack.model.LockFile;
 import io.vertx.stack.utils.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -92,7 +93,14 @@ public class DescriptorTest {
     Launcher.main(args.toArray(new String[args.size()]));
 
     assertThat(new File(root, "vertx-core-3.1.0.jar")).isFile();
+    // The lock file is only written on demand
+    assertThat(new File(LockFile.DEFAULT_NAME)).doesNotExist();
+
+    args.add("--lock");
+    Launcher.main(args.toArray(new String[args.size()]));
+    assertThat(new File(LockFile.DEFAULT_NAME)).isFile();
     defaultStack.delete();
+    new File(LockFile.DEFAULT_NAME).delete();
   }
 
   @Test
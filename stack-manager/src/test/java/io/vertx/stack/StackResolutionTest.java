@@ -19,16 +19,26 @@ package io.vertx.stack;
 import com.jayway.awaitility.Awaitility;
 import io.vertx.stack.model.*;
 import io.vertx.stack.utils.FileUtils;
+import io.vertx.stack.utils.JarRepacker;
+import io.vertx.stack.utils.MergedArchive;
 import io.vertx.stack.utils.LocalArtifact;
 import io.vertx.stack.utils.LocalDependency;
 import io.vertx.stack.utils.LocalRepoBuilder;
 import org.apache.maven.model.Exclusion;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
@@ -40,6 +50,9 @@ public class StackResolutionTest {
 
   private final File root = new File("target/stack");
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private final static StackResolutionOptions STRICT = new StackResolutionOptions().setFailOnConflicts(true);
 
   @Before
@@ -78,6 +91,35 @@ public class StackResolutionTest {
     assertThat(map).containsKeys("io.vertx:vertx-core:jar:3.1.0").hasSize(1);
   }
 
+  @Test
+  public void testTheResolutionWithStoredJars() {
+    Stack stack = new Stack().addDependency(new Dependency("io.vertx", "vertx-core", "3.1.0").setTransitive(false));
+    File cache = new File("target/stored-jars");
+    FileUtils.delete(cache);
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setJarsStored(true).setStoredJarsCache(cache);
+    File core = new StackResolution(stack, root, options).resolve().get("io.vertx:vertx-core:jar:3.1.0");
+    assertThat(JarRepacker.isStored(core)).isTrue();
+    assertThat(cache.listFiles()).hasSize(1);
+
+    // Going back to the compressed jars replaces the stored ones
+    new StackResolution(stack, root, STRICT).resolve();
+    assertThat(JarRepacker.isStored(core)).isFalse();
+  }
+
+  @Test
+  public void testTheResolutionWithAMergedArchive() {
+    Stack stack = new Stack().addDependency(new Dependency("io.vertx", "vertx-core", "3.1.0"));
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true).setMerged(true);
+    Map<String, File> map = new StackResolution(stack, root, options).resolve();
+    assertThat(map).containsKey("io.vertx:vertx-core:jar:3.1.0");
+    assertThat(root.list()).contains(MergedArchive.FILE_NAME).doesNotContain("vertx-core-3.1.0.jar");
+
+    // Going back to the copied jars removes the archive
+    new StackResolution(stack, root, STRICT).resolve();
+    assertThat(root.list()).contains("vertx-core-3.1.0.jar").doesNotContain(MergedArchive.FILE_NAME);
+  }
+
   @Test
   public void testNoConflictWhenADependencyIsDeclaredTwice() {
     Dependency dependency = new Dependency("io.vertx", "vertx-core", "3.1.0");
@@ -275,4 +317,311 @@ public class StackResolutionTest {
         "\t\t\\-- org.jetbrains.kotlin:kotlin-stdlib:jar:1.7.21\n" +
         "\t\t\t\\-- org.jetbrains:annotations:jar:13.0");
   }
+
+  @Test
+  public void testLockFileGenerationAndLockedResolution() {
+    File local = new File("target/test-repos/locked");
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme-lib", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact()
+        .addDependency(new LocalDependency("org.acme", "acme-lib", "1.0").type("txt")))
+      .build();
+    File lock = new File(temp.getRoot(), "vertx-stack.lock");
+
+    Stack stack = new Stack().addDependency(new Dependency("org.acme", "acme", "1.0", "txt"));
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setLocalRepository(local.getAbsolutePath())
+      .setCacheDisabled(true)
+      .setLockFile(lock);
+    Map<String, File> map = new StackResolution(stack, root, options).resolve();
+    assertThat(map).containsKeys("org.acme:acme:txt:1.0", "org.acme:acme-lib:txt:1.0").hasSize(2);
+
+    LockFile lockFile = LockFile.read(lock);
+    assertThat(lockFile.getArtifacts()).hasSize(2);
+    LockFile.Entry lib = lockFile.getArtifacts().get(1);
+    assertThat(lib.getArtifactId()).isEqualTo("acme-lib");
+    assertThat(lib.getVia()).containsExactly("org.acme:acme:txt:1.0");
+    assertThat(lib.getSha1()).isNotEmpty();
+
+    // The lock file is only rewritten when it changes.
+    long modified = lock.lastModified();
+    assertThat(lock.setLastModified(modified - 10000)).isTrue();
+    new StackResolution(stack, root, options).resolve();
+    assertThat(lock.lastModified()).isEqualTo(modified - 10000);
+
+    // The locked resolution does not collect the stack dependencies anymore.
+    FileUtils.delete(root);
+    map = new StackResolution(stack, root, options.setLocked(true)).resolve();
+    assertThat(map).containsKeys("org.acme:acme:txt:1.0", "org.acme:acme-lib:txt:1.0").hasSize(2);
+    assertThat(new File(root, "acme-lib-1.0.txt")).isFile();
+
+    // But it fails if the stack has been modified since the lock file was written.
+    Stack modifiedStack = new Stack().addDependency(new Dependency("org.acme", "acme", "1.0", "txt")
+      .setTransitive(false));
+    assertThatThrownBy(() -> new StackResolution(modifiedStack, root, options).resolve())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("modified");
+  }
+
+  @Test
+  public void testUpdateOnlyResolvesTheModifiedDependencies() {
+    File local = new File("target/test-repos/update");
+    File cache = new File("target/test-repos/update-cache.json");
+    FileUtils.delete(local);
+    FileUtils.delete(cache);
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme", "2.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-extra", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-other", "1.0").generateMainArtifact())
+      .build();
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setLocalRepository(local.getAbsolutePath())
+      .setOffline(true)
+      .setCacheFile(cache);
+    StackResolution resolution = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options);
+    resolution.resolve();
+
+    // A new resolution of acme-other would now select acme-extra
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme-other", "1.0").generateMainArtifact()
+        .addDependency(new LocalDependency("org.acme", "acme-extra", "1.0").type("txt")))
+      .build();
+    Map<String, File> map = resolution.update(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "2.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")));
+    assertThat(map).containsOnlyKeys("org.acme:acme:txt:2.0", "org.acme:acme-other:txt:1.0");
+    assertThat(root.list()).contains("acme-2.0.txt", "acme-other-1.0.txt");
+
+    // With the cache disabled, the previous resolutions are not reused
+    map = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options.setCacheDisabled(true))
+      .resolve();
+    assertThat(map).containsKey("org.acme:acme-extra:txt:1.0");
+  }
+
+  @Test
+  public void testTheStateOfTheLastResolutionIsReused() {
+    File local = new File("target/test-repos/state");
+    File cache = new File("target/test-repos/state-cache.json");
+    FileUtils.delete(local);
+    FileUtils.delete(cache);
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme", "2.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-extra", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-other", "1.0").generateMainArtifact())
+      .build();
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setLocalRepository(local.getAbsolutePath())
+      .setOffline(true)
+      .setCacheFile(cache);
+    new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options).resolve();
+    assertThat(new File(root, ResolutionState.FILE_NAME)).isFile();
+
+    // A new resolution of acme-other would now select acme-extra
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme-other", "1.0").generateMainArtifact()
+        .addDependency(new LocalDependency("org.acme", "acme-extra", "1.0").type("txt")))
+      .build();
+    Map<String, File> map = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "2.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options).resolve();
+    assertThat(map).containsOnlyKeys("org.acme:acme:txt:2.0", "org.acme:acme-other:txt:1.0");
+
+    // With the cache disabled, the state is ignored and acme-other is resolved again
+    map = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options.setCacheDisabled(true))
+      .resolve();
+    assertThat(map).containsKey("org.acme:acme-extra:txt:1.0");
+  }
+
+  @Test
+  public void testTheSelectedArtifactsAreStreamed() {
+    File local = new File("target/test-repos/stream");
+    FileUtils.delete(local);
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-other", "1.0").generateMainArtifact())
+      .build();
+    StackResolutionOptions options = new StackResolutionOptions()
+      .setLocalRepository(local.getAbsolutePath())
+      .setOffline(true)
+      .setCacheDisabled(true);
+    StackResolution resolution = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt")), root, options);
+    CollectingSubscriber subscriber = new CollectingSubscriber(0);
+    resolution.subscribe(subscriber);
+    resolution.resolve();
+    Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> subscriber.done);
+    assertThat(subscriber.items).containsExactly("org.acme:acme:txt:1.0", "org.acme:acme-other:txt:1.0");
+    assertThat(subscriber.error).isNull();
+
+    // A failed resolution leaves the output directory unchanged
+    File output = new File("target/stack-stream");
+    FileUtils.delete(output);
+    resolution = new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-other", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-missing", "1.0", "txt")), output, options);
+    // A slow subscriber still receives the artifacts published before the failure
+    CollectingSubscriber failed = new CollectingSubscriber(200);
+    resolution.subscribe(failed);
+    assertThatThrownBy(resolution::resolve).hasMessageContaining("acme-missing");
+    Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> failed.done);
+    assertThat(failed.items).containsExactly("org.acme:acme:txt:1.0", "org.acme:acme-other:txt:1.0");
+    assertThat(failed.error).isNotNull();
+    assertThat(new File(output, "acme-1.0.txt")).doesNotExist();
+  }
+
+  @Test
+  public void testTheFetchAndApplyPhases() throws IOException {
+    File local = new File("target/test-repos/plan");
+    FileUtils.delete(local);
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme", "2.0").generateMainArtifact())
+      .build();
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setLocalRepository(local.getAbsolutePath())
+      .setOffline(true)
+      .setCacheDisabled(true);
+    Stack stack = new Stack().addDependency(new Dependency("org.acme", "acme", "1.0", "txt"));
+    File plan = new StackResolution(stack, root, options).fetch();
+    assertThat(plan).isFile();
+    assertThat(new File(root, "acme-1.0.txt")).doesNotExist();
+
+    Map<String, File> map = new StackResolution(stack, root, options).apply();
+    assertThat(map).containsOnlyKeys("org.acme:acme:txt:1.0");
+    assertThat(new File(root, "acme-1.0.txt")).isFile();
+    assertThat(plan).doesNotExist();
+    assertThatThrownBy(() -> new StackResolution(stack, root, options).apply())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("fetched first");
+
+    // A plan without checksums is applied from the files only
+    new StackResolution(stack, root, options).fetch();
+    ResolutionPlan staged = ResolutionPlan.read(root);
+    staged.getArtifacts().forEach(entry -> entry.setSha1(null));
+    staged.write(root);
+    assertThat(new StackResolution(stack, root, options).apply()).containsOnlyKeys("org.acme:acme:txt:1.0");
+
+    // The stack and the local repository must not change between the two phases
+    new StackResolution(stack, root, options).fetch();
+    assertThatThrownBy(() -> new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "2.0", "txt")), root, options).apply())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("modified");
+    // Including a change of the resolution options only
+    assertThatThrownBy(() -> new StackResolution(new Stack()
+      .addDependency(new Dependency("org.acme", "acme", "1.0", "txt").setTransitive(false)), root, options).apply())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("modified");
+    Files.write(new File(local, "org/acme/acme/1.0/acme-1.0.txt").toPath(), "modified".getBytes());
+    assertThatThrownBy(() -> new StackResolution(stack, root, options).apply())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("acme-1.0.txt");
+  }
+
+  @Test
+  public void testLockedResolutionWithChecksumMismatch() {
+    File local = new File("target/test-repos/locked");
+    new LocalRepoBuilder(local)
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .build();
+    File lock = new File(temp.getRoot(), "vertx-stack.lock");
+    new LockFile()
+      .addArtifact(new LockFile.Entry().setGroupId("org.acme").setArtifactId("acme").setExtension("txt")
+        .setVersion("1.0").setSha1("0000000000000000000000000000000000000000"))
+      .write(lock);
+
+    StackResolutionOptions options = new StackResolutionOptions()
+      .setLocalRepository(local.getAbsolutePath())
+      .setLockFile(lock)
+      .setLocked(true);
+    StackResolution resolution = new StackResolution(new Stack(), root, options);
+    assertThatThrownBy(resolution::resolve)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("org.acme:acme:txt:1.0");
+  }
+
+  @Test
+  public void testAllConflictsAreReportedBeforeAnyDownload() {
+    File remote = new File("target/test-repos/conflicts-remote");
+    new LocalRepoBuilder(remote)
+      .addArtifact(new LocalArtifact("org.acme", "acme-lib", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-lib", "2.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-util", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-util", "2.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme-a", "1.0").generateMainArtifact()
+        .addDependency(new LocalDependency("org.acme", "acme-lib", "1.0").type("txt"))
+        .addDependency(new LocalDependency("org.acme", "acme-util", "1.0").type("txt")))
+      .addArtifact(new LocalArtifact("org.acme", "acme-b", "1.0").generateMainArtifact()
+        .addDependency(new LocalDependency("org.acme", "acme-lib", "2.0").type("txt"))
+        .addDependency(new LocalDependency("org.acme", "acme-util", "2.0").type("txt")))
+      .build();
+    File local = new File("target/test-repos/conflicts-local");
+    FileUtils.delete(local);
+
+    Stack stack = new Stack()
+      .addDependency(new Dependency("org.acme", "acme-a", "1.0", "txt"))
+      .addDependency(new Dependency("org.acme", "acme-b", "1.0", "txt"));
+    StackResolutionOptions options = new StackResolutionOptions().setFailOnConflicts(true)
+      .setCacheDisabled(true)
+      .setLocalRepository(local.getAbsolutePath())
+      .setRemoteRepositories(Collections.singletonList(remote.toURI().toString()));
+
+    StackResolution resolution = new StackResolution(stack, root, options);
+    assertThatThrownBy(resolution::resolve)
+      .isInstanceOf(DependencyConflictException.class)
+      .hasMessageStartingWith("2 conflicts detected:")
+      .hasMessageContaining("org.acme:acme-lib:txt - version 1.0 was already selected")
+      .hasMessageContaining("org.acme:acme-util:txt - version 1.0 was already selected");
+    // Only the POM files have been fetched
+    assertThat(new File(local, "org/acme/acme-a/1.0/acme-a-1.0.pom")).isFile();
+    assertThat(new File(local, "org/acme/acme-a/1.0/acme-a-1.0.txt")).doesNotExist();
+    assertThat(new File(local, "org/acme/acme-lib/1.0/acme-lib-1.0.txt")).doesNotExist();
+  }
+
+  private static class CollectingSubscriber implements Flow.Subscriber<StackResolution.ResolvedArtifact> {
+    private final List<String> items = new CopyOnWriteArrayList<>();
+    private final long delay;
+    private volatile Throwable error;
+    private volatile boolean done;
+
+    private CollectingSubscriber(long delay) {
+      this.delay = delay;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(StackResolution.ResolvedArtifact item) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      items.add(item.getArtifact().toString());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done = true;
+    }
+
+    @Override
+    public void onComplete() {
+      done = true;
+    }
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.daemon;
+
+import io.vertx.stack.model.StackResolutionOptions;
+import io.vertx.stack.utils.FileUtils;
+import io.vertx.stack.utils.LocalArtifact;
+import io.vertx.stack.utils.LocalRepoBuilder;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResolverDaemonTest {
+
+  private final File root = new File("target/test-daemon");
+  private File socket;
+  private ResolverDaemon daemon;
+  private Thread thread;
+
+  @Before
+  public void setUp() throws IOException {
+    Assume.assumeTrue(ResolverDaemon.isSupported());
+    FileUtils.delete(root);
+    new LocalRepoBuilder(new File(root, "repo"))
+      .addArtifact(new LocalArtifact("org.acme", "acme", "1.0").generateMainArtifact())
+      .addArtifact(new LocalArtifact("org.acme", "acme", "2.0").generateMainArtifact())
+      .build();
+    // Unix domain socket paths are limited to about 100 characters
+    socket = new File(Files.createTempDirectory("vertx-daemon").toFile(), "daemon.sock");
+    daemon = new ResolverDaemon(socket);
+    daemon.bind();
+    thread = new Thread(daemon::serve);
+    thread.start();
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    if (daemon != null) {
+      daemon.close();
+      thread.join(10000);
+    }
+  }
+
+  @Test
+  public void testRequestsAreResolvedByTheDaemon() throws IOException {
+    File descriptor = descriptor("1.0");
+    File lib = new File(root, "lib");
+    Map<String, File> resolved = ResolverDaemon.forward(socket, request(descriptor, lib));
+    assertThat(resolved).containsOnlyKeys("org.acme:acme:txt:1.0");
+    assertThat(new File(lib, "acme-1.0.txt")).isFile();
+
+    descriptor("2.0");
+    resolved = ResolverDaemon.forward(socket, request(descriptor, lib));
+    assertThat(resolved).containsOnlyKeys("org.acme:acme:txt:2.0");
+    assertThat(new File(lib, "acme-2.0.txt")).isFile();
+  }
+
+  @Test
+  public void testTheDescriptorIsFilteredWithThePropertiesOfTheClient() throws IOException {
+    File descriptor = descriptor("${acme.version}");
+    File lib = new File(root, "lib");
+    Map<String, File> resolved = ResolverDaemon.forward(socket, request(descriptor, lib)
+      .setProperties(Collections.singletonMap("acme.version", "2.0")));
+    assertThat(resolved).containsOnlyKeys("org.acme:acme:txt:2.0");
+  }
+
+  @Test
+  public void testThePathsOfTheRequestAreAbsolute() {
+    StackResolutionOptions options = new StackResolutionOptions().setCacheFile(new File("target/cache.json"))
+      .setLocalRepository("target/repo");
+    ResolveRequest request = new ResolveRequest(new File("vertx-stack.json"), new File("lib"), options);
+    assertThat(request.getOptions().getCacheFile()).isEqualTo(new File("target/cache.json").getAbsoluteFile());
+    assertThat(request.getOptions().getLocalRepository()).isEqualTo(new File("target/repo").getAbsolutePath());
+    // The options of the client are left unchanged, as they are reused when no daemon is running
+    assertThat(options.getCacheFile()).isEqualTo(new File("target/cache.json"));
+    assertThat(options.getLocalRepository()).isEqualTo("target/repo");
+  }
+
+  @Test
+  public void testTheErrorsAreReportedToTheClient() throws IOException {
+    File descriptor = descriptor("3.0");
+    assertThatThrownBy(() -> ResolverDaemon.forward(socket, request(descriptor, new File(root, "lib"))))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("org.acme:acme");
+  }
+
+  @Test
+  public void testTheClientFallsBackWhenNoDaemonIsRunning() throws IOException {
+    File descriptor = descriptor("1.0");
+    daemon.close();
+    assertThat(socket).doesNotExist();
+    assertThat(ResolverDaemon.forward(socket, request(descriptor, new File(root, "lib")))).isNull();
+  }
+
+  @Test
+  public void testTheSocketIsOnlyAccessibleByItsOwner() throws IOException {
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.toPath()))).isEqualTo("rw-------");
+    // The directory used to bind the socket has been removed
+    assertThat(socket.getParentFile().list()).containsExactly(socket.getName());
+  }
+
+  @Test
+  public void testAStaleSocketIsReplaced() {
+    assertThatThrownBy(() -> new ResolverDaemon(socket).bind()).isInstanceOf(IllegalStateException.class);
+    daemon.close();
+    FileUtils.write(socket, "stale");
+    daemon = new ResolverDaemon(socket);
+    daemon.bind();
+    thread = new Thread(daemon::serve);
+    thread.start();
+    assertThat(socket).exists();
+  }
+
+  private ResolveRequest request(File descriptor, File lib) {
+    return new ResolveRequest(descriptor, lib, new StackResolutionOptions()
+      .setLocalRepository(new File(root, "repo").getAbsolutePath())
+      .setOffline(true)
+      .setCacheDisabled(true));
+  }
+
+  private File descriptor(String version) throws IOException {
+    File descriptor = new File(root, "vertx-stack.json");
+    Files.write(descriptor.toPath(), ("{\"dependencies\": [{\"groupId\": \"org.acme\", \"artifactId\": \"acme\", " +
+      "\"version\": \"" + version + "\", \"type\": \"txt\"}]}").getBytes(StandardCharsets.UTF_8));
+    return descriptor;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.launcher;
+
+import io.vertx.stack.utils.FileUtils;
+import io.vertx.stack.utils.Jars;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static io.vertx.stack.utils.Jars.addClass;
+import static io.vertx.stack.utils.Jars.entries;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexedClassLoaderTest {
+
+  private File lib;
+
+  @Before
+  public void setUp() throws IOException {
+    lib = new File("target/test-indexed-lib");
+    FileUtils.delete(lib);
+    Files.createDirectories(lib.toPath());
+  }
+
+  @Test
+  public void testIndexRoundTrip() throws IOException {
+    File a = jar("a.jar", entries("org/acme/A.txt", "root.txt", "META-INF/versions/11/org/acme/B.txt"));
+    File b = jar("b.jar", entries("org/acme/C.txt", "org/acme/impl/D.txt"));
+    PackageIndex.build(Arrays.asList(a, b)).write(lib);
+
+    PackageIndex index = PackageIndex.read(lib);
+    assertThat(index.getJars()).containsExactly("a.jar", "b.jar");
+    assertThat(index.getJars("org/acme")).containsExactly("a.jar", "b.jar");
+    assertThat(index.getJars("org/acme/impl")).containsExactly("b.jar");
+    assertThat(index.getJars("")).containsExactly("a.jar");
+    assertThat(index.getJars("org/missing")).isEmpty();
+    assertThat(PackageIndex.read(new File(lib, "missing"))).isNull();
+  }
+
+  @Test
+  public void testClassesAndResourcesAreLoadedFromTheIndexedJars() throws Exception {
+    Map<String, byte[]> app = entries("org/acme/app.txt");
+    addClass(app, Greeter.class);
+    File a = jar("app.jar", app);
+    File b = jar("other.jar", entries("org/acme/app.txt", "org/acme/other.txt"));
+    PackageIndex.build(Arrays.asList(a, b)).write(lib);
+
+    try (IndexedClassLoader loader = IndexedClassLoader.create(lib, ClassLoader.getPlatformClassLoader())) {
+      Class<?> clazz = loader.loadClass(Greeter.class.getName());
+      assertThat(clazz.getClassLoader()).isSameAs(loader);
+      assertThat(clazz).isNotSameAs(Greeter.class);
+      assertThat(clazz.getMethod("greet").invoke(null)).isEqualTo("hello");
+      assertThat(clazz.getProtectionDomain().getCodeSource().getLocation()).isEqualTo(a.toURI().toURL());
+
+      assertThat(read(loader.getResource("org/acme/other.txt"))).isEqualTo("org/acme/other.txt");
+      assertThat(Collections.list(loader.getResources("org/acme/app.txt"))).hasSize(2);
+      assertThat(loader.getResource("org/acme/missing.txt")).isNull();
+    }
+  }
+
+  @Test
+  public void testLookupInManyJars() throws IOException {
+    int jarCount = 200;
+    int entriesPerJar = 20;
+    List<File> jars = new ArrayList<>();
+    List<String> resources = new ArrayList<>();
+    for (int i = 0; i < jarCount; i++) {
+      List<String> names = new ArrayList<>();
+      for (int j = 0; j < entriesPerJar; j++) {
+        names.add("org/acme/p" + i + "/R" + j + ".txt");
+      }
+      resources.addAll(names);
+      jars.add(jar("jar-" + i + ".jar", entries(names.toArray(new String[0]))));
+    }
+    PackageIndex.build(jars).write(lib);
+
+    try (IndexedClassLoader loader = IndexedClassLoader.create(lib, ClassLoader.getPlatformClassLoader())) {
+      resources.forEach(resource -> assertThat(loader.getResource(resource)).isNotNull());
+    }
+  }
+
+  private File jar(String name, Map<String, byte[]> entries) throws IOException {
+    return Jars.jar(new File(lib, name), entries);
+  }
+
+  static String read(URL url) throws IOException {
+    try (InputStream in = url.openStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * A class loaded by the indexed class loader.
+   */
+  public static class Greeter {
+    public static String greet() {
+      return "hello";
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.launcher;
+
+import io.vertx.stack.utils.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.spi.FileTypeDetector;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+import static io.vertx.stack.launcher.IndexedClassLoaderTest.read;
+import static io.vertx.stack.utils.Jars.addClass;
+import static io.vertx.stack.utils.Jars.contents;
+import static io.vertx.stack.utils.Jars.jar;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceRegistryTest {
+
+  private static final String SERVICE = "META-INF/services/" + FileTypeDetector.class.getName();
+
+  private File lib;
+
+  @Before
+  public void setUp() throws IOException {
+    lib = new File("target/test-service-registry");
+    FileUtils.delete(lib);
+    Files.createDirectories(lib.toPath());
+  }
+
+  @Test
+  public void testTheServicesAreMergedInClassPathOrder() throws IOException {
+    File a = jar(new File(lib, "a.jar"), contents(SERVICE, "# A comment\norg.acme.A1\n\norg.acme.A2 # inline\n",
+      "META-INF/services/org.acme.Other", "org.acme.Other1"));
+    File b = jar(new File(lib, "b.jar"), contents(SERVICE, "org.acme.B\norg.acme.A1\n"));
+
+    ServiceRegistry registry = ServiceRegistry.build(Arrays.asList(a, b));
+    assertThat(registry.getProviders(FileTypeDetector.class.getName()))
+      .containsExactly("org.acme.A1", "org.acme.A2", "org.acme.B");
+    assertThat(registry.getDuplicates()).containsExactly("Provider org.acme.A1 of "
+      + FileTypeDetector.class.getName() + " is declared by a.jar and b.jar");
+
+    registry.write(lib);
+    ServiceRegistry read = ServiceRegistry.read(lib);
+    assertThat(read.getServices()).containsExactly(FileTypeDetector.class.getName(), "org.acme.Other");
+    assertThat(read.getProviders("org.acme.Other")).containsExactly("org.acme.Other1");
+    assertThat(read.getProviders("org.acme.Missing")).isNull();
+  }
+
+  @Test
+  public void testServiceLookupsAreServedFromTheRegistry() throws IOException {
+    Map<String, byte[]> entries = contents(SERVICE, AcmeDetector.class.getName());
+    addClass(entries, AcmeDetector.class);
+    File app = jar(new File(lib, "app.jar"), entries);
+    List<File> classpath = Collections.singletonList(app);
+    PackageIndex.build(classpath).write(lib);
+    ServiceRegistry.build(classpath).write(lib);
+    // Remove the service file from the jar, only the registry declares the provider
+    entries.remove(SERVICE);
+    jar(new File(lib, "app.jar"), entries);
+
+    try (IndexedClassLoader loader = IndexedClassLoader.create(lib, ClassLoader.getPlatformClassLoader())) {
+      assertThat(read(loader.getResource(SERVICE))).isEqualTo(AcmeDetector.class.getName());
+      List<String> detectors = ServiceLoader.load(FileTypeDetector.class, loader).stream()
+        .map(provider -> provider.type().getName())
+        .collect(Collectors.toList());
+      assertThat(detectors).contains(AcmeDetector.class.getName());
+      assertThat(loader.getResource("META-INF/services/org.acme.Missing")).isNull();
+    }
+  }
+
+  /**
+   * A provider loaded by the indexed class loader.
+   */
+  public static class AcmeDetector extends FileTypeDetector {
+    @Override
+    public String probeContentType(Path path) {
+      return "application/acme";
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExclusionMatcherTest {
+
+  @Test
+  public void testExactExclusions() {
+    ExclusionMatcher matcher = ExclusionMatcher.compile(Arrays.asList("io.netty:netty-codec", "org.acme:acme"));
+    assertThat(matcher.matches("io.netty", "netty-codec")).isTrue();
+    assertThat(matcher.matches("org.acme", "acme")).isTrue();
+    assertThat(matcher.matches("io.netty", "netty-codec-http")).isFalse();
+    assertThat(matcher.matches("io.netty", "netty")).isFalse();
+    assertThat(matcher.matches("org.acme.sub", "acme")).isFalse();
+  }
+
+  @Test
+  public void testWildcardExclusions() {
+    ExclusionMatcher matcher = ExclusionMatcher.compile(Arrays.asList("io.netty:netty-transport-native-*",
+        "org.acme.*", "com.acme:*", "*:forbidden"));
+    assertThat(matcher.matches("io.netty", "netty-transport-native-epoll")).isTrue();
+    assertThat(matcher.matches("io.netty", "netty-transport-native-kqueue")).isTrue();
+    assertThat(matcher.matches("io.netty", "netty-transport")).isFalse();
+    assertThat(matcher.matches("org.acme.plugins", "anything")).isTrue();
+    assertThat(matcher.matches("org.acme", "anything")).isTrue();
+    assertThat(matcher.matches("org.acmex", "anything")).isFalse();
+    assertThat(matcher.matches("com.acme", "anything")).isTrue();
+    assertThat(matcher.matches("com.acme.sub", "anything")).isFalse();
+    assertThat(matcher.matches("net.acme", "forbidden")).isTrue();
+    assertThat(matcher.matches("net.acme", "allowed")).isFalse();
+
+    // A group ending with .* also matches the group itself
+    matcher = ExclusionMatcher.compile(Collections.singletonList("org.apache.*:commons-*"));
+    assertThat(matcher.matches("org.apache", "commons-io")).isTrue();
+    assertThat(matcher.matches("org.apache.commons", "commons-lang3")).isTrue();
+    assertThat(matcher.matches("org.apache", "log4j")).isFalse();
+
+    assertThat(ExclusionMatcher.compile(Collections.singletonList("*")).matches("any", "thing")).isTrue();
+    assertThat(ExclusionMatcher.NONE.matches("any", "thing")).isFalse();
+  }
+
+  @Test
+  public void testInvalidExclusions() {
+    assertThatThrownBy(() -> ExclusionMatcher.compile(Collections.singletonList("org.*.acme:acme")))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> ExclusionMatcher.compile(Collections.singletonList("org.acme:acme:jar")))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> ExclusionMatcher.compile(Collections.singletonList("org.acme:")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+
+import io.vertx.stack.model.Artifact;
+import io.vertx.stack.utils.FileUtils;
+import io.vertx.stack.utils.LocalArtifact;
+import io.vertx.stack.utils.LocalDependency;
+import io.vertx.stack.utils.LocalRepoBuilder;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests of the graph processing of the Aether based resolver.
+ */
+public class ResolverImplTest {
+
+  @Test
+  public void testFlatteningOfADiamondHeavyGraph() {
+    // 10 layers of 8 nodes, each node depending on all the nodes of the next layer: 8^10 paths to the last layer
+    int layers = 10;
+    int width = 8;
+    DefaultDependencyNode root = node("root");
+    List<DefaultDependencyNode> previous = Collections.singletonList(root);
+    for (int layer = 0; layer < layers; layer++) {
+      List<DefaultDependencyNode> current = new ArrayList<>();
+      for (int i = 0; i < width; i++) {
+        current.add(node("n-" + layer + "-" + i));
+      }
+      for (DefaultDependencyNode parent : previous) {
+        parent.setChildren(new ArrayList<>(current));
+      }
+      previous = current;
+    }
+
+    List<Artifact> artifacts = ResolverImpl.toArtifacts(root, new Artifact(root.getArtifact(), null),
+        ExclusionMatcher.NONE);
+
+    assertThat(artifacts).hasSize(layers * width);
+    assertThat(artifacts.stream().map(Artifact::getCoordinates).distinct().count()).isEqualTo(layers * width);
+    // Each artifact is reported with its shortest provenance path
+    for (Artifact artifact : artifacts) {
+      int depth = 0;
+      for (Artifact via = artifact.getVia(); via != null; via = via.getVia()) {
+        depth++;
+      }
+      assertThat(depth).isEqualTo(Integer.parseInt(artifact.getArtifactId().split("-")[1]) + 1);
+    }
+  }
+
+  @Test
+  public void testFlatteningOfADeepGraph() {
+    DefaultDependencyNode root = node("root");
+    DefaultDependencyNode parent = root;
+    for (int i = 0; i < 10000; i++) {
+      DefaultDependencyNode child = node("n-" + i);
+      parent.setChildren(new ArrayList<>(Collections.singletonList(child)));
+      parent = child;
+    }
+    assertThat(ResolverImpl.toArtifacts(root, new Artifact(root.getArtifact(), null), ExclusionMatcher.NONE))
+        .hasSize(10000);
+  }
+
+  @Test
+  public void testExclusionFilterWithHundredsOfExclusions() {
+    // 6 layers of 4 nodes, each declaring 100 exclusions, the root declaring 300 exclusions. Each node also depends on
+    // an excluded dependency, itself having a dependency.
+    int layers = 6;
+    int width = 4;
+    DefaultDependencyNode root = node("root", exclusions("excluded-", 300));
+    List<DefaultDependencyNode> previous = Collections.singletonList(root);
+    for (int layer = 0; layer < layers; layer++) {
+      List<DefaultDependencyNode> current = new ArrayList<>();
+      for (int i = 0; i < width; i++) {
+        current.add(node("n-" + layer + "-" + i, exclusions("other-" + layer + "-", 100)));
+      }
+      DefaultDependencyNode excluded = node("excluded-" + layer, Collections.emptyList());
+      excluded.setChildren(new ArrayList<>(Collections.singletonList(node("under-excluded", Collections.emptyList()))));
+      for (DefaultDependencyNode parent : previous) {
+        List<DependencyNode> children = new ArrayList<>(current);
+        children.add(excluded);
+        parent.setChildren(children);
+      }
+      previous = current;
+    }
+
+    List<String> accepted = new ArrayList<>();
+    visit(root, new ArrayList<>(), new ExclusionFilter(ExclusionMatcher.NONE), accepted);
+
+    int expected = 0;
+    for (int layer = 1; layer <= layers; layer++) {
+      expected += (int) Math.pow(width, layer);
+    }
+    assertThat(accepted).hasSize(expected + 1);
+    assertThat(accepted).allMatch(id -> id.equals("root") || id.startsWith("n-"));
+  }
+
+  @Test
+  public void testTheDefaultMethodsAreBuiltOnResolve() {
+    List<ResolutionOptions> requested = new ArrayList<>();
+    Resolver resolver = (dependency, options) -> {
+      requested.add(options);
+      Artifact artifact = new Artifact(dependency);
+      return Collections.singletonList(artifact.setFile(new File(artifact.getArtifactId() + ".txt")));
+    };
+
+    assertThat(resolver.collect("com.acme:acme:txt:1.0", new ResolutionOptions())).hasSize(1);
+    Artifact parent = new Artifact("com.acme:acme:txt:1.0");
+    List<Artifact> resolved = resolver.resolveArtifacts(Collections.singletonList(
+        new Artifact("com.acme:acme-lib:txt:1.0", parent)));
+    assertThat(resolved).hasSize(1);
+    assertThat(resolved.get(0).getFile()).isEqualTo(new File("acme-lib.txt"));
+    assertThat(resolved.get(0).getVia()).isEqualTo(parent);
+    assertThat(resolver.resolveVersion(parent)).isEqualTo("1.0");
+    assertThat(requested).hasSize(3);
+    assertThat(requested.get(1).isWithTransitive()).isFalse();
+    assertThat(requested.get(2).isWithTransitive()).isFalse();
+  }
+
+  @Test
+  public void testOfflineFailuresListTheMissingArtifacts() {
+    File local = new File(ResolverTest.ROOT, "offline-local-repo");
+    FileUtils.delete(local);
+    new LocalRepoBuilder(local)
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-missing", "1.0").type("txt")))
+        .build();
+    Resolver offline = new ResolverImpl(new ResolverOptions().setLocalRepository(local.getAbsolutePath())
+        .setOffline(true));
+    assertThatThrownBy(() -> offline.resolve("com.acme:acme:txt:1.0", new ResolutionOptions()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("offline mode")
+        .hasMessageContaining(local.getAbsolutePath());
+  }
+
+  /**
+   * Visits the graph depth-first, passing the parents to the filter the way Aether does.
+   */
+  private static void visit(DependencyNode node, List<DependencyNode> parents, DependencyFilter filter,
+                            List<String> accepted) {
+    if (filter.accept(node, parents)) {
+      accepted.add(node.getArtifact().getArtifactId());
+    }
+    parents.add(0, node);
+    for (DependencyNode child : node.getChildren()) {
+      visit(child, parents, filter, accepted);
+    }
+    parents.remove(0);
+  }
+
+  private static List<Exclusion> exclusions(String prefix, int count) {
+    List<Exclusion> exclusions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      exclusions.add(new Exclusion("com.acme", prefix + i, null, null));
+    }
+    return exclusions;
+  }
+
+  private static DefaultDependencyNode node(String artifactId, List<Exclusion> exclusions) {
+    return new DefaultDependencyNode(new Dependency(new DefaultArtifact("com.acme:" + artifactId + ":1.0"), "compile",
+        false, exclusions));
+  }
+
+  private static DefaultDependencyNode node(String artifactId) {
+    return new DefaultDependencyNode(new Dependency(new DefaultArtifact("com.acme:" + artifactId + ":1.0"), "compile"));
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.resolver;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests of the resolver options and of the selection of the resolver provider, independent from the providers.
+ */
+public class ResolverOptionsTest {
+
+  @Test
+  public void testUnknownResolver() {
+    assertThatThrownBy(() -> Resolver.create(new ResolverOptions().setResolver("does-not-exist")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ResolverFactory.DEFAULT_NAME);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidUpdatePolicy() {
+    new ResolverOptions().setSnapshotUpdatePolicy("sometimes");
+  }
+}
@@ -24,23 +24,49 @@ import io.vertx.stack.utils.LocalDependency;
 import io.vertx.stack.utils.LocalRepoBuilder;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.ServiceLoader;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
+ * Resolver conformance tests, executed against every {@link ResolverFactory} available on the classpath.
+ *
  * @author <a href="http://escoffier.me">Clement Escoffier</a>
  */
+@RunWith(Parameterized.class)
 public class ResolverTest {
 
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> providers() {
+    List<Object[]> providers = new ArrayList<>();
+    for (ResolverFactory factory : ServiceLoader.load(ResolverFactory.class)) {
+      providers.add(new Object[]{factory.name()});
+    }
+    return providers;
+  }
+
   public final static File ROOT = new File("target/test-repos");
 
   public final static File LOCAL = new File(ROOT, "fake-local-maven-repo");
 
-  private final Resolver resolver = Resolver.create(new ResolverOptions().setLocalRepository(LOCAL.getAbsolutePath()));
+  private final String provider;
+
+  private final Resolver resolver;
+
+  public ResolverTest(String provider) {
+    this.provider = provider;
+    this.resolver = Resolver.create(new ResolverOptions().setResolver(provider)
+        .setLocalRepository(LOCAL.getAbsolutePath()));
+  }
 
   @Before
   public void setUp() {
@@ -56,6 +82,52 @@ public class ResolverTest {
         .containsExactly("com.acme:acme:txt:1.0");
   }
 
+  @Test
+  public void testThatNonTransitiveResolutionDoesNotFetchTheTransitiveDependencies() {
+    File remote = new File(ROOT, "fake-remote-maven-repo");
+    new LocalRepoBuilder(remote)
+        .addArtifact(new LocalArtifact("com.acme", "acme-lib", "1.0").generateMainArtifact())
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-lib", "1.0").type("txt")))
+        .build();
+    Resolver resolver = Resolver.create(new ResolverOptions().setResolver(provider)
+        .setLocalRepository(LOCAL.getAbsolutePath())
+        .setRemoteRepositories(Collections.singletonList(remote.toURI().toString())));
+
+    List<Artifact> artifacts = resolver.resolve("com.acme:acme:txt:1.0",
+        new ResolutionOptions().setWithTransitive(false));
+    assertThat(artifacts.stream().map(Artifact::toString).collect(Collectors.toList()))
+        .containsExactly("com.acme:acme:txt:1.0");
+    assertThat(artifacts.get(0).getFile()).isFile();
+    assertThat(new File(LOCAL, "com/acme/acme")).isDirectory();
+    assertThat(new File(LOCAL, "com/acme/acme-lib")).doesNotExist();
+  }
+
+  @Test
+  public void testCollectionDoesNotDownloadTheArtifacts() {
+    File remote = new File(ROOT, "fake-remote-maven-repo");
+    new LocalRepoBuilder(remote)
+        .addArtifact(new LocalArtifact("com.acme", "acme-lib", "1.0").generateMainArtifact())
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-lib", "1.0").type("txt")))
+        .build();
+    Resolver resolver = Resolver.create(new ResolverOptions().setResolver(provider)
+        .setLocalRepository(LOCAL.getAbsolutePath())
+        .setRemoteRepositories(Collections.singletonList(remote.toURI().toString())));
+
+    List<Artifact> artifacts = resolver.collect("com.acme:acme:txt:1.0", new ResolutionOptions());
+    assertThat(artifacts.stream().map(Artifact::toString).collect(Collectors.toList()))
+        .containsExactly("com.acme:acme:txt:1.0", "com.acme:acme-lib:txt:1.0");
+    assertThat(artifacts.get(1).getVia()).isEqualTo(artifacts.get(0));
+    assertThat(new File(LOCAL, "com/acme/acme/1.0/acme-1.0.txt")).doesNotExist();
+
+    List<Artifact> resolved = resolver.resolveArtifacts(artifacts);
+    assertThat(resolved).hasSize(2);
+    assertThat(resolved.get(1).getFile()).isFile();
+  }
+
   @Test
   public void testSimpleResolutionWithTransitive() {
     new LocalRepoBuilder(LOCAL).addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
@@ -321,4 +393,92 @@ public class ResolverTest {
         .contains("acme", "acme-api");
   }
 
+  @Test
+  public void testThatWildcardExclusionsArePrunedDuringTheCollection() {
+    // The excluded artifacts are not in the repository, the resolution would fail if they were collected
+    new LocalRepoBuilder(LOCAL)
+        .addArtifact(new LocalArtifact("com.acme", "acme-api", "1.0").generateMainArtifact())
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-api", "1.0").type("txt"))
+            .addDependency(new LocalDependency("com.acme", "acme-native-linux", "1.0").type("txt"))
+            .addDependency(new LocalDependency("com.acme", "acme-native-osx", "1.0").type("txt"))
+            .addDependency(new LocalDependency("org.acme.plugins", "acme-plugin", "1.0").type("txt"))
+        )
+        .build();
+
+    List<Artifact> artifacts = resolver.resolve("com.acme:acme:txt:1.0", new ResolutionOptions()
+        .addExclusion("com.acme:acme-native-*")
+        .addExclusion("org.acme.*"));
+    assertThat(artifacts.stream().map(Artifact::getArtifactId).collect(Collectors.toList()))
+        .containsExactly("acme", "acme-api");
+    assertThat(new File(LOCAL, "com/acme/acme-native-linux")).doesNotExist();
+  }
+
+  @Test
+  public void testThatOnlyTheArtifactsOfThePlatformAreResolved() {
+    // The artifacts of the other platforms are not in the repository, the resolution would fail if they were collected
+    File linux = new File("target/acme-native-linux.txt");
+    FileUtils.write(linux, "linux");
+    new LocalRepoBuilder(LOCAL)
+        .addArtifact(new LocalArtifact("com.acme", "acme-native", "1.0")
+            .generateMainArtifact()
+            .file(linux, "linux-x86_64"))
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-native", "1.0").type("txt"))
+            .addDependency(new LocalDependency("com.acme", "acme-native", "1.0").type("txt")
+                .classifier("linux-x86_64"))
+            .addDependency(new LocalDependency("com.acme", "acme-native", "1.0").type("txt")
+                .classifier("osx-aarch_64"))
+            .addDependency(new LocalDependency("com.acme", "acme-native", "1.0").type("txt")
+                .classifier("windows-x86_64")))
+        .build();
+
+    List<Artifact> artifacts = resolver.resolve("com.acme:acme:txt:1.0", new ResolutionOptions()
+        .setPlatform("linux-x86_64"));
+    assertThat(artifacts.stream().map(Artifact::toString).collect(Collectors.toList()))
+        .containsExactly("com.acme:acme:txt:1.0", "com.acme:acme-native:txt:1.0",
+            "com.acme:acme-native:txt:linux-x86_64:1.0");
+  }
+
+  @Test
+  public void testOfflineResolutionFromTheLocalRepository() {
+    new LocalRepoBuilder(LOCAL)
+        .addArtifact(new LocalArtifact("com.acme", "acme-api", "1.0").generateMainArtifact())
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-api", "1.0").type("txt")))
+        .build();
+    Resolver offline = Resolver.create(new ResolverOptions().setResolver(provider)
+        .setLocalRepository(LOCAL.getAbsolutePath())
+        .setOffline(true));
+    List<Artifact> artifacts = offline.resolve("com.acme:acme:txt:1.0", new ResolutionOptions());
+    assertThat(artifacts.stream().map(Artifact::toString).collect(Collectors.toList()))
+        .containsExactly("com.acme:acme:txt:1.0", "com.acme:acme-api:txt:1.0");
+  }
+
+  @Test
+  public void testOfflineResolutionReportsMissingArtifacts() {
+    new LocalRepoBuilder(LOCAL)
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0")
+            .generateMainArtifact()
+            .addDependency(new LocalDependency("com.acme", "acme-missing", "1.0").type("txt")))
+        .build();
+    Resolver offline = Resolver.create(new ResolverOptions().setResolver(provider)
+        .setLocalRepository(LOCAL.getAbsolutePath())
+        .setOffline(true));
+    assertThatThrownBy(() -> offline.resolve("com.acme:acme:txt:1.0", new ResolutionOptions()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("com.acme:acme-missing:txt:1.0");
+  }
+
+  @Test
+  public void testVersionResolutionOfALocalSnapshot() {
+    new LocalRepoBuilder(LOCAL)
+        .addArtifact(new LocalArtifact("com.acme", "acme", "1.0-SNAPSHOT").generateMainArtifact())
+        .build();
+    assertThat(resolver.resolveVersion(new Artifact("com.acme:acme:txt:1.0-SNAPSHOT")))
+        .isEqualTo("1.0-SNAPSHOT");
+  }
 }
@@ -24,10 +24,12 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -224,6 +226,88 @@ public class CacheTest {
     assertThat(list).hasSize(1);
   }
 
+  @Test
+  public void testConfigurableSnapshotTtl() {
+    String gacv = "org.acme:acme:jar:1.0-SNAPSHOT";
+    ResolutionOptions options = new ResolutionOptions();
+    cache.setSnapshotTtl(60 * 60 * 1000);
+
+    Artifact artifact = new Artifact("org.acme:acme:jar:1.0-SNAPSHOT").setFile(TEMP_FILE);
+    cache.put(gacv, options, Collections.singletonList(artifact));
+    cache.find(gacv, options).get().setInsertionTime(System.currentTimeMillis() - 30 * 60 * 1000);
+    assertThat(cache.get(gacv, options)).hasSize(1);
+
+    cache.find(gacv, options).get().setInsertionTime(System.currentTimeMillis() - 90 * 60 * 1000);
+    assertThat(cache.get(gacv, options)).isNull();
+  }
+
+  @Test
+  public void testSnapshotRevalidation() {
+    String gacv = "org.acme:acme:jar:1.0-SNAPSHOT";
+    ResolutionOptions options = new ResolutionOptions();
+    Artifact artifact = new Artifact("org.acme:acme:jar:1.0-SNAPSHOT").setFile(TEMP_FILE);
+    cache.put(gacv, options, Collections.singletonList(artifact));
+
+    // Not expired, the revalidation is not called
+    assertThat(cache.get(gacv, options, list -> {
+      throw new AssertionError("Unexpected revalidation");
+    })).hasSize(1);
+
+    // Expired but unchanged, the entry is kept and renewed
+    long expired = System.currentTimeMillis() - 25 * 60 * 60 * 1000;
+    cache.find(gacv, options).get().setInsertionTime(expired);
+    assertThat(cache.get(gacv, options, list -> true)).hasSize(1);
+    assertThat(cache.find(gacv, options).get().getInsertionTime()).isGreaterThan(expired);
+
+    // Expired and changed, the entry is evicted
+    cache.find(gacv, options).get().setInsertionTime(expired);
+    assertThat(cache.get(gacv, options, list -> false)).isNull();
+    assertThat(cache.find(gacv, options)).isEmpty();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    ResolutionOptions options = new ResolutionOptions();
+    cache.setMaxEntries(2);
+    cache.put("org.acme:a:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:a:jar:1.0").setFile(TEMP_FILE)));
+    cache.put("org.acme:b:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:b:jar:1.0").setFile(TEMP_FILE)));
+
+    // "a" is older than "b" but has been used more recently
+    long now = System.currentTimeMillis();
+    cache.find("org.acme:a:jar:1.0", options).get().setInsertionTime(now - 20000).setLastAccessTime(now);
+    cache.find("org.acme:b:jar:1.0", options).get().setInsertionTime(now - 10000).setLastAccessTime(now - 10000);
+
+    cache.put("org.acme:c:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:c:jar:1.0").setFile(TEMP_FILE)));
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("org.acme:a:jar:1.0", options)).hasSize(1);
+    assertThat(cache.get("org.acme:b:jar:1.0", options)).isNull();
+    assertThat(cache.get("org.acme:c:jar:1.0", options)).hasSize(1);
+
+    // Reloading the cache with a lower limit evicts the entries in excess
+    cache.writeCacheOnFile();
+    cache = new Cache(false, false, cacheFile).setMaxEntries(1);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    ResolutionOptions options = new ResolutionOptions();
+    File removed = Files.createTempFile("acme", ".jar").toFile();
+    cache.put("org.acme:a:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:a:jar:1.0").setFile(TEMP_FILE)));
+    cache.put("org.acme:b:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:b:jar:1.0").setFile(removed)));
+    assertThat(cache.compact()).isEqualTo(0);
+
+    removed.delete();
+    assertThat(cache.compact()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.find("org.acme:a:jar:1.0", options)).isPresent();
+  }
+
   @Test
   public void testCachingUsingDifferentResolutionOption() {
     String gacv = "org.acme:acme:jar:1.0";
@@ -271,4 +355,71 @@ public class CacheTest {
     assertThat(deserialized.get(0).getVia()).isEqualTo(root);
   }
 
+  @Test
+  public void testConcurrentWritesAreMerged() {
+    ResolutionOptions options = new ResolutionOptions();
+    Cache other = new Cache(false, false, cacheFile);
+    cache.put("org.acme:a:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:a:jar:1.0").setFile(TEMP_FILE)));
+    other.put("org.acme:b:jar:1.0", options,
+      Collections.singletonList(new Artifact("org.acme:b:jar:1.0").setFile(TEMP_FILE)));
+    cache.writeCacheOnFile();
+    other.writeCacheOnFile();
+
+    // The entry written by the other instance is picked up on a miss
+    assertThat(cache.get("org.acme:b:jar:1.0", options)).hasSize(1);
+    assertThat(new Cache(false, false, cacheFile).size()).isEqualTo(2);
+
+    // Removed entries are not brought back by the merge
+    cache.find("org.acme:a:jar:1.0", options).get().setArtifacts(
+      Collections.singletonList(new Artifact("org.acme:a:jar:1.0").setFile(new File("does not exist.jar"))));
+    assertThat(cache.compact()).isEqualTo(1);
+    cache.writeCacheOnFile();
+    Cache reloaded = new Cache(false, false, cacheFile);
+    assertThat(reloaded.size()).isEqualTo(1);
+    assertThat(reloaded.find("org.acme:b:jar:1.0", options)).isPresent();
+  }
+
+  @Test
+  public void testMultiProcessWrites() throws Exception {
+    int processes = 4;
+    int entries = 25;
+    String java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+    List<Process> running = new ArrayList<>();
+    for (int i = 0; i < processes; i++) {
+      running.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        CacheWriter.class.getName(), cacheFile.getAbsolutePath(), TEMP_FILE.getAbsolutePath(), "p" + i,
+        Integer.toString(entries))
+        .inheritIO()
+        .start());
+    }
+    for (Process process : running) {
+      assertThat(process.waitFor(60, TimeUnit.SECONDS)).isTrue();
+      assertThat(process.exitValue()).isEqualTo(0);
+    }
+
+    cache = new Cache(false, false, cacheFile);
+    assertThat(cache.size()).isEqualTo(processes * entries);
+    for (int i = 0; i < processes; i++) {
+      for (int j = 0; j < entries; j++) {
+        assertThat(cache.get("org.acme:p" + i + "-" + j + ":jar:1.0", new ResolutionOptions())).hasSize(1);
+      }
+    }
+  }
+
+  /**
+   * Writes entries to a shared cache file, used to simulate concurrent {@code vertx resolve} processes.
+   */
+  public static class CacheWriter {
+    public static void main(String[] args) {
+      File file = new File(args[1]);
+      Cache cache = new Cache(false, false, new File(args[0]));
+      for (int i = 0; i < Integer.parseInt(args[3]); i++) {
+        String gacv = "org.acme:" + args[2] + "-" + i + ":jar:1.0";
+        cache.put(gacv, new ResolutionOptions(), Collections.singletonList(new Artifact(gacv).setFile(file)));
+        cache.writeCacheOnFile();
+      }
+    }
+  }
+
 }
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassDataSharingTest {
+
+  private static final List<String> TRAINING = Collections.singletonList(Training.class.getName());
+
+  private File lib;
+
+  @Before
+  public void setUp() throws IOException {
+    lib = new File("target/test-cds");
+    FileUtils.delete(lib);
+    Files.createDirectories(lib.toPath());
+  }
+
+  @Test
+  public void testTheArchiveIsOnlyRegeneratedWhenTheClassPathChanges() throws IOException {
+    File app = jar("app.jar", Training.class);
+    File other = jar("other.jar", ClassDataSharingTest.class);
+
+    LauncherArgs args = LauncherArgs.load(lib);
+    File archive = ClassDataSharing.generate(lib, Collections.singletonList(app), new HashMap<>(), TRAINING, args);
+    assertThat(archive).isFile();
+    assertThat(new File(lib, ClassDataSharing.DIGEST_NAME)).isFile();
+    assertThat(args.getOptions()).contains("--class-path=" + app.getAbsolutePath());
+    assertThat(args.getOptions().stream().anyMatch(option -> option.endsWith("=" + archive.getAbsolutePath())))
+      .isTrue();
+
+    // Up to date, the training is not run again
+    assertThat(archive.setLastModified(1000)).isTrue();
+    ClassDataSharing.generate(lib, Collections.singletonList(app), new HashMap<>(), TRAINING, LauncherArgs.load(lib));
+    assertThat(archive.lastModified()).isEqualTo(1000);
+
+    ClassDataSharing.generate(lib, Arrays.asList(app, other), new HashMap<>(), TRAINING, LauncherArgs.load(lib));
+    assertThat(archive).isFile();
+    assertThat(archive.lastModified()).isNotEqualTo(1000);
+  }
+
+  @Test
+  public void testFailingTrainingRun() throws IOException {
+    File app = jar("app.jar", Training.class);
+    LauncherArgs args = LauncherArgs.load(lib);
+    File archive = ClassDataSharing.generate(lib, Collections.singletonList(app), new HashMap<>(),
+      Collections.singletonList("org.acme.Missing"), args);
+    assertThat(archive).isNull();
+    assertThat(new File(lib, ClassDataSharing.DIGEST_NAME)).doesNotExist();
+    assertThat(new File(lib, ClassDataSharing.LOG_NAME)).isFile();
+    assertThat(args.getOptions().stream().noneMatch(option -> option.startsWith("-XX:"))).isTrue();
+  }
+
+  private File jar(String name, Class<?> clazz) throws IOException {
+    return Jars.jar(new File(lib, name), Jars.classes(clazz));
+  }
+
+  /**
+   * The main class of the training runs.
+   */
+  public static class Training {
+    public static void main(String[] args) {
+      System.out.println("trained");
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClasspathProfilerTest {
+
+  private static final List<String> TRAINING = Collections.singletonList(Training.class.getName());
+
+  private File lib;
+
+  @Before
+  public void setUp() throws IOException {
+    lib = new File("target/test-classpath-profile");
+    FileUtils.delete(lib);
+    Files.createDirectories(lib.toPath());
+  }
+
+  @Test
+  public void testTheClassPathIsOrderedByLoadedClasses() throws IOException {
+    File cold = jar("cold.jar", Cold.class);
+    File warm = jar("warm.jar", Warm.class);
+    File hot = jar("hot.jar", Training.class, Hot.class);
+
+    List<File> ordered = ClasspathProfiler.order(lib, Arrays.asList(cold, warm, hot), new HashMap<>(), TRAINING,
+      ClasspathProfiler.DEFAULT_CLASSES, Collections.emptyList());
+    assertThat(ordered).containsExactly(hot, warm, cold);
+    assertThat(new File(lib, ClasspathProfiler.PROFILE_NAME)).isFile();
+
+    // The profile is up to date, the training does not run again
+    Files.delete(new File(lib, ClasspathProfiler.LOG_NAME).toPath());
+    ordered = ClasspathProfiler.order(lib, Arrays.asList(cold, warm, hot), new HashMap<>(), TRAINING,
+      ClasspathProfiler.DEFAULT_CLASSES, Collections.emptyList());
+    assertThat(ordered).containsExactly(hot, warm, cold);
+    assertThat(new File(lib, ClasspathProfiler.LOG_NAME)).doesNotExist();
+  }
+
+  @Test
+  public void testOnlyTheFirstLoadedClassesAreConsidered() throws IOException {
+    File a = new File(lib, "a.jar");
+    File b = new File(lib, "b.jar");
+    File log = new File(lib, "class-load.log");
+    FileUtils.write(log, "java.lang.Object source: jrt:/java.base\n"
+      + "org.acme.A1 source: " + a.toURI() + "\n"
+      + "org.acme.B1 source: " + b.toURI() + "\n"
+      + "org.acme.B2 source: " + b.toURI() + "\n"
+      + "org.acme.B3 source: " + b.toURI() + "\n");
+
+    assertThat(ClasspathProfiler.profile(Arrays.asList(a, b), log, 3)).containsExactly("a.jar", "b.jar");
+    assertThat(ClasspathProfiler.profile(Arrays.asList(a, b), log, 5)).containsExactly("b.jar", "a.jar");
+  }
+
+  @Test
+  public void testFailingTrainingKeepsTheOrder() throws IOException {
+    File cold = jar("cold.jar", Cold.class);
+    File hot = jar("hot.jar", Hot.class);
+    List<File> ordered = ClasspathProfiler.order(lib, Arrays.asList(cold, hot), new HashMap<>(),
+      Collections.singletonList("org.acme.Missing"), ClasspathProfiler.DEFAULT_CLASSES, Collections.emptyList());
+    assertThat(ordered).containsExactly(cold, hot);
+    assertThat(new File(lib, ClasspathProfiler.PROFILE_NAME)).doesNotExist();
+  }
+
+  private File jar(String name, Class<?>... classes) throws IOException {
+    return Jars.jar(new File(lib, name), Jars.classes(classes));
+  }
+
+  /**
+   * The main class of the training runs, loading two classes from its jar and one from another jar.
+   */
+  public static class Training {
+    public static void main(String[] args) {
+      System.out.println(new Hot() + " " + new Warm());
+    }
+  }
+
+  public static class Hot {
+  }
+
+  public static class Warm {
+  }
+
+  public static class Cold {
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClasspathScannerTest {
+
+  private File lib;
+
+  @Before
+  public void setUp() throws IOException {
+    lib = new File("target/test-classpath-scan");
+    FileUtils.delete(lib);
+    Files.createDirectories(lib.toPath());
+  }
+
+  @Test
+  public void testDuplicateClassesAndSplitPackages() throws IOException {
+    File netty = jar("netty.jar", "io/netty/Buffer.class", "io/netty/Channel.class", "module-info.class");
+    File shaded = jar("shaded.jar", "io/netty/Buffer.class", "io/netty/Channel.class", "module-info.class");
+    File api = jar("api.jar", "org/acme/Api.class", "META-INF/versions/11/org/acme/Impl.class");
+    File impl = jar("impl.jar", "org/acme/Impl.class");
+
+    ClasspathScanner.Report report = ClasspathScanner.scan(Arrays.asList(netty, shaded, api, impl), new HashMap<>(),
+      lib);
+    assertThat(report.getDuplicateClasses()).containsOnlyKeys("io.netty.Buffer", "io.netty.Channel");
+    assertThat(report.getDuplicateClasses().get("io.netty.Buffer")).containsExactly("netty.jar", "shaded.jar");
+    assertThat(report.getSplitPackages()).containsOnlyKeys("io.netty", "org.acme");
+    assertThat(report.describe()).containsExactly(
+      "2 duplicate classes in [netty.jar, shaded.jar] (e.g. io.netty.Buffer)",
+      "Package org.acme split across [api.jar, impl.jar]");
+  }
+
+  @Test
+  public void testTheScanIsCachedByChecksum() throws IOException {
+    File a = jar("a.jar", "org/acme/A.class");
+    File b = jar("b.jar", "org/acme/A.class");
+    Map<File, String> checksums = new HashMap<>();
+    ClasspathScanner.scan(Arrays.asList(a, b), checksums, lib);
+    assertThat(checksums).containsOnlyKeys(a, b);
+    assertThat(new File(lib, ClasspathScanner.CACHE_NAME)).isFile();
+
+    // The jars are not opened again, their content is read from the cache
+    Files.write(a.toPath(), new byte[0]);
+    Files.write(b.toPath(), new byte[0]);
+    ClasspathScanner.Report report = ClasspathScanner.scan(Arrays.asList(a, b), checksums, lib);
+    assertThat(report.getDuplicateClasses()).containsOnlyKeys("org.acme.A");
+  }
+
+  private File jar(String name, String... entries) throws IOException {
+    return Jars.jar(new File(lib, name), Jars.entries(entries));
+  }
+}
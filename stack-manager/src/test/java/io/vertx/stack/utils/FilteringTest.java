@@ -16,6 +16,8 @@
 
 package io.vertx.stack.utils;
 
+import io.vertx.stack.model.Dependency;
+import io.vertx.stack.model.Stack;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -74,4 +76,15 @@ public class FilteringTest {
     assertThat(out).isEqualTo("hello vert.x ${per ");
   }
 
+  @Test
+  public void testFilteringWithPlatformVariables() {
+    Dependency dependency = new Dependency("io.netty", "netty-tcnative-boringssl-static", "2.0.29.Final");
+    dependency.setClassifier("${os.detected.classifier}");
+    Stack stack = new Stack().addDependency(dependency).setMatchPlatform(true);
+    stack.applyFiltering();
+    assertThat(dependency.getClassifier()).isEqualTo(Platform.os() + "-" + Platform.arch());
+    assertThat(dependency.isMatchPlatform()).isTrue();
+    assertThat(dependency.getResolutionOptions().getPlatform()).isEqualTo(Platform.classifier());
+  }
+
 }
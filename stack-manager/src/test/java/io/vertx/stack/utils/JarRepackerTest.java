@@ -0,0 +1,163 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JarRepackerTest {
+
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File("target/test-jar-repacker");
+    FileUtils.delete(directory);
+    Files.createDirectories(directory.toPath());
+  }
+
+  @Test
+  public void testThatEntriesAreStoredWithTheSameContent() throws IOException {
+    File jar = jar(new File(directory, "acme.jar"), 50);
+    File stored = new File(directory, "stored/acme.jar");
+    JarRepacker.repack(jar, stored);
+
+    assertThat(JarRepacker.isStored(jar)).isFalse();
+    assertThat(JarRepacker.isStored(stored)).isTrue();
+    assertThat(stored.length()).isGreaterThan(jar.length());
+    try (ZipFile original = new ZipFile(jar); ZipFile repacked = new ZipFile(stored)) {
+      assertThat(names(repacked)).isEqualTo(names(original));
+      for (String name : names(original)) {
+        assertThat(read(repacked, name)).isEqualTo(read(original, name));
+        assertThat(repacked.getEntry(name).getTime()).isEqualTo(original.getEntry(name).getTime());
+      }
+    }
+  }
+
+  @Test
+  public void testThatEachJarVersionIsRepackedOnce() throws IOException {
+    File jar = jar(new File(directory, "acme.jar"), 10);
+    File cache = new File(directory, "cache");
+    String sha1 = Checksums.sha1(jar);
+
+    File stored = JarRepacker.stored(jar, sha1, cache);
+    assertThat(stored).isEqualTo(new File(new File(cache, sha1), "acme.jar"));
+    assertThat(JarRepacker.isStored(stored)).isTrue();
+    long modified = stored.lastModified();
+    Files.write(jar.toPath(), new byte[0]);
+
+    // The original is not read again
+    assertThat(JarRepacker.stored(jar, sha1, cache)).isEqualTo(stored);
+    assertThat(stored.lastModified()).isEqualTo(modified);
+    assertThat(JarRepacker.isStored(stored)).isTrue();
+  }
+
+  @Test
+  public void testThatSignaturesArePreserved() throws Exception {
+    File jar = jar(new File(directory, "signed.jar"), 20);
+    File keystore = new File(directory, "keystore.p12");
+    String bin = System.getProperty("java.home") + File.separator + "bin" + File.separator;
+    run(bin + "keytool", "-genkeypair", "-keystore", keystore.getAbsolutePath(), "-storetype", "PKCS12",
+      "-storepass", "password", "-keypass", "password", "-alias", "acme", "-keyalg", "RSA",
+      "-dname", "CN=acme", "-validity", "1");
+    run(bin + "jarsigner", "-keystore", keystore.getAbsolutePath(), "-storepass", "password",
+      jar.getAbsolutePath(), "acme");
+
+    File stored = new File(directory, "stored/signed.jar");
+    JarRepacker.repack(jar, stored);
+    assertThat(JarRepacker.isStored(stored)).isTrue();
+    try (JarFile signed = new JarFile(stored, true)) {
+      int verified = 0;
+      for (JarEntry entry : Collections.list(signed.entries())) {
+        read(signed, entry.getName());
+        if (entry.getName().endsWith(".txt")) {
+          assertThat(entry.getCodeSigners()).isNotNull().hasSize(1);
+          verified++;
+        }
+      }
+      assertThat(verified).isEqualTo(20);
+    }
+  }
+
+  @Test
+  public void testResourcesAreLoadedFromAStoredJar() throws IOException {
+    File jar = jar(new File(directory, "many.jar"), 3000);
+    File stored = new File(directory, "stored/many.jar");
+    JarRepacker.repack(jar, stored);
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{stored.toURI().toURL()}, null)) {
+      for (int i = 0; i < 3000; i++) {
+        try (InputStream in = loader.getResourceAsStream("org/acme/Resource" + i + ".txt")) {
+          assertThat(in).isNotNull();
+          assertThat(in.readAllBytes()).isNotEmpty();
+        }
+      }
+    }
+  }
+
+  private static File jar(File jar, int count) throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      content.append("Some compressible content ").append(i).append('\n');
+    }
+    Map<String, byte[]> entries = Jars.contents("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n\n", "org/acme/", "");
+    for (int i = 0; i < count; i++) {
+      entries.put("org/acme/Resource" + i + ".txt", (i + "\n" + content).getBytes(StandardCharsets.UTF_8));
+    }
+    return Jars.jar(jar, entries);
+  }
+
+  private static List<String> names(ZipFile zip) {
+    List<String> names = new ArrayList<>();
+    for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+      names.add(entries.nextElement().getName());
+    }
+    return names;
+  }
+
+  private static byte[] read(ZipFile zip, String name) throws IOException {
+    try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static void run(String... command) throws Exception {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true)
+      .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+    assertThat(process.waitFor(60, TimeUnit.SECONDS)).isTrue();
+    assertThat(process.exitValue()).isEqualTo(0);
+  }
+}
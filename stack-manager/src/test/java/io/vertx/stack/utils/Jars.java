@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.stack.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds the jar files used by the tests.
+ */
+public class Jars {
+
+  /**
+   * Writes a jar containing the given entries, in the iteration order of the map.
+   *
+   * @param jar     the jar file
+   * @param entries the content of the entries, by name
+   * @return the jar file
+   */
+  public static File jar(File jar, Map<String, byte[]> entries) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        out.putNextEntry(new ZipEntry(entry.getKey()));
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  /**
+   * @param names the entry names
+   * @return entries whose content is their own name
+   */
+  public static Map<String, byte[]> entries(String... names) {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (String name : names) {
+      entries.put(name, name.getBytes(StandardCharsets.UTF_8));
+    }
+    return entries;
+  }
+
+  /**
+   * @param content the entry names, each followed by the content of the entry
+   * @return the entries
+   */
+  public static Map<String, byte[]> contents(String... content) {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (int i = 0; i < content.length; i += 2) {
+      entries.put(content[i], content[i + 1].getBytes(StandardCharsets.UTF_8));
+    }
+    return entries;
+  }
+
+  /**
+   * @param classes the classes
+   * @return the entries of the class files of the given classes
+   */
+  public static Map<String, byte[]> classes(Class<?>... classes) throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (Class<?> clazz : classes) {
+      addClass(entries, clazz);
+    }
+    return entries;
+  }
+
+  /**
+   * Adds the class file of the given class to the entries.
+   */
+  public static void addClass(Map<String, byte[]> entries, Class<?> clazz) throws IOException {
+    String path = clazz.getName().replace('.', '/') + ".class";
+    try (InputStream in = clazz.getClassLoader().getResourceAsStream(path)) {
+      entries.put(path, in.readAllBytes());
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MergedArchiveTest {
+
+  private File directory;
+  private File archive;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File("target/test-merged-archive");
+    FileUtils.delete(directory);
+    Files.createDirectories(directory.toPath());
+    archive = new File(directory, MergedArchive.FILE_NAME);
+  }
+
+  @Test
+  public void testTheMergeOfConflictingEntries() throws IOException {
+    File a = jar("a.jar",
+      "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nImplementation-Title: a\r\n\r\n",
+      "META-INF/A.SF", "signature",
+      "META-INF/services/org.acme.Spi", "org.acme.A\n",
+      "module-info.class", "a",
+      "org/a/A.class", "a",
+      "shared.txt", "a");
+    File b = jar("b.jar",
+      "META-INF/services/org.acme.Spi", "org.acme.B\norg.acme.A\n",
+      "org/b/B.class", "b",
+      "shared.txt", "b");
+
+    MergedArchive merge = MergedArchive.merge(Arrays.asList(a, b), new HashMap<>(), archive, false);
+    assertThat(merge.getConflicts()).containsExactly(
+      "1 entries of b.jar shadowed by a.jar with a different content (e.g. shared.txt)");
+    assertThat(merge.getWritten()).isEqualTo(3);
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      assertThat(read(zip, "org/a/A.class")).isEqualTo("a");
+      assertThat(read(zip, "org/b/B.class")).isEqualTo("b");
+      assertThat(read(zip, "shared.txt")).isEqualTo("a");
+      assertThat(read(zip, "META-INF/services/org.acme.Spi")).isEqualTo("org.acme.A\norg.acme.B\n");
+      assertThat(read(zip, "META-INF/MANIFEST.MF")).doesNotContain("Implementation-Title");
+      assertThat(read(zip, MergedArchive.METADATA + "a.jar/MANIFEST.MF")).contains("Implementation-Title: a");
+      assertThat(read(zip, MergedArchive.INDEX)).contains("a.jar " + Checksums.sha1(a) + "\norg/a/A.class\n");
+      assertThat(zip.getEntry("META-INF/A.SF")).isNull();
+      assertThat(zip.getEntry("module-info.class")).isNull();
+    }
+  }
+
+  @Test
+  public void testTheIncrementalUpdate() throws IOException {
+    File a = jar("a.jar", "org/a/A.class", "a", "org/a/A2.class", "a2");
+    File b = jar("b.jar", "org/b/B.class", "b", "META-INF/services/org.acme.Spi", "org.acme.B\n");
+    File c = jar("c.jar", "org/c/C.class", "c");
+    List<File> jars = Arrays.asList(a, b, c);
+
+    assertThat(MergedArchive.merge(jars, new HashMap<>(), archive, false).getWritten()).isEqualTo(4);
+    long modified = archive.lastModified();
+
+    // Nothing changed, the archive is not rewritten
+    MergedArchive merge = MergedArchive.merge(jars, new HashMap<>(), archive, false);
+    assertThat(merge.getWritten()).isEqualTo(0);
+    assertThat(archive.lastModified()).isEqualTo(modified);
+
+    // Only the entries of the updated jar are written
+    b = jar("b.jar", "org/b/B.class", "b2", "org/b/B3.class", "b3");
+    merge = MergedArchive.merge(Arrays.asList(a, b, c), new HashMap<>(), archive, false);
+    assertThat(merge.getWritten()).isEqualTo(2);
+    assertThat(merge.getRemoved()).isEqualTo(1);
+
+    // Removing a jar only removes its entries
+    merge = MergedArchive.merge(Arrays.asList(a, b), new HashMap<>(), archive, false);
+    assertThat(merge.getWritten()).isEqualTo(0);
+    assertThat(merge.getRemoved()).isEqualTo(1);
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      assertThat(read(zip, "org/a/A2.class")).isEqualTo("a2");
+      assertThat(read(zip, "org/b/B.class")).isEqualTo("b2");
+      assertThat(read(zip, "org/b/B3.class")).isEqualTo("b3");
+      assertThat(zip.getEntry("org/c/C.class")).isNull();
+      assertThat(zip.getEntry("META-INF/services/org.acme.Spi")).isNull();
+    }
+  }
+
+  @Test
+  public void testTheMergeWithoutCompression() throws IOException {
+    File a = jar("a.jar", "org/a/A.class", "a");
+    File b = jar("b.jar", "org/b/B.class", "b");
+    MergedArchive.merge(Arrays.asList(a, b), new HashMap<>(), archive, true);
+    assertThat(JarRepacker.isStored(archive)).isTrue();
+  }
+
+  private File jar(String name, String... content) throws IOException {
+    return Jars.jar(new File(directory, name), Jars.contents(content));
+  }
+
+  private static String read(ZipFile zip, String name) throws IOException {
+    try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.stack.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NativeLibrariesTest {
+
+  private File root;
+
+  @Before
+  public void setUp() throws IOException {
+    root = new File("target/test-native");
+    FileUtils.delete(root);
+    Files.createDirectories(root.toPath());
+  }
+
+  @Test
+  public void testPlatformNormalization() {
+    assertThat(Platform.normalizeOs("Linux")).isEqualTo("linux");
+    assertThat(Platform.normalizeOs("Mac OS X")).isEqualTo("osx");
+    assertThat(Platform.normalizeOs("Windows 10")).isEqualTo("windows");
+    assertThat(Platform.normalizeArch("amd64")).isEqualTo("x86_64");
+    assertThat(Platform.normalizeArch("aarch64")).isEqualTo("aarch_64");
+    assertThat(Platform.normalizeArch("ppc64le")).isEqualTo("ppcle_64");
+
+    assertThat(Platform.isPlatformClassifier("linux-x86_64")).isTrue();
+    assertThat(Platform.isPlatformClassifier("sources")).isFalse();
+    assertThat(Platform.matches("linux-x86_64-fedora", "linux-x86_64")).isTrue();
+    assertThat(Platform.matches("osx-aarch_64", "linux-x86_64")).isFalse();
+    assertThat(Platform.matches(null, "linux-x86_64")).isTrue();
+  }
+
+  @Test
+  public void testOnlyTheLibrariesOfThePlatformAreExtracted() throws IOException {
+    File jar = jar("netty-tcnative-boringssl-static.jar",
+      "META-INF/native/libnetty_tcnative_linux_x86_64.so",
+      "META-INF/native/libnetty_tcnative_linux_aarch_64.so",
+      "META-INF/native/libnetty_tcnative_osx_x86_64.jnilib",
+      "META-INF/native/netty_tcnative_windows_x86_64.dll",
+      "META-INF/MANIFEST.MF");
+    File epoll = jar("netty-transport-native-epoll.jar",
+      "META-INF/native/libnetty_transport_native_epoll_x86_64.so");
+
+    File lib = new File(root, "lib");
+    List<File> extracted = NativeLibraries.extract(Arrays.asList(jar, epoll), lib, "linux", "x86_64");
+
+    File output = new File(lib, "native/linux-x86_64");
+    assertThat(extracted).containsExactly(new File(output, "libnetty_tcnative_linux_x86_64.so"),
+      new File(output, "libnetty_transport_native_epoll_x86_64.so"));
+    assertThat(output.list()).containsOnly("libnetty_tcnative_linux_x86_64.so",
+      "libnetty_transport_native_epoll_x86_64.so");
+
+    extracted = NativeLibraries.extract(Arrays.asList(jar, epoll), lib, "osx", "x86_64");
+    assertThat(extracted).extracting(File::getName).containsExactly("libnetty_tcnative_osx_x86_64.jnilib");
+  }
+
+  @Test
+  public void testExtractionIsIncremental() throws IOException {
+    File jar = jar("tcnative.jar", "META-INF/native/libnetty_tcnative_linux_x86_64.so");
+    File epoll = jar("epoll.jar", "META-INF/native/libnetty_transport_native_epoll_x86_64.so");
+    File lib = new File(root, "lib");
+    NativeLibraries.extract(Arrays.asList(jar, epoll), lib, "linux", "x86_64");
+
+    File library = new File(lib, "native/linux-x86_64/libnetty_tcnative_linux_x86_64.so");
+    assertThat(library.setLastModified(1000)).isTrue();
+    NativeLibraries.extract(Collections.singletonList(jar), lib, "linux", "x86_64");
+
+    // Unchanged libraries are not rewritten, the ones no longer provided are deleted
+    assertThat(library.lastModified()).isEqualTo(1000);
+    assertThat(new File(lib, "native/linux-x86_64").list()).containsExactly(library.getName());
+  }
+
+  @Test
+  public void testLauncherArgs() {
+    File lib = new File(root, "lib");
+    lib.mkdirs();
+    LauncherArgs.load(lib).set("-Djava.library.path=/opt/my lib").set("-Dfoo=bar").write();
+    LauncherArgs.load(lib).set("-Dfoo=baz").write();
+
+    assertThat(LauncherArgs.load(lib).getOptions()).containsExactly("-Djava.library.path=/opt/my lib", "-Dfoo=baz");
+
+    LauncherArgs.load(lib).remove("-Djava.library.path").remove("-Dfoo").write();
+    assertThat(new File(lib, LauncherArgs.FILE_NAME)).doesNotExist();
+  }
+
+  private File jar(String name, String... entries) throws IOException {
+    return Jars.jar(new File(root, name), Jars.entries(entries));
+  }
+}